@@ -0,0 +1,461 @@
+package cdoan.stanfordalgo.week1;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Sort a text file of whitespace-separated integers that doesn't fit in memory.
+ *
+ * 1) Read the input through memory-mapped windows, one chunk of at most memoryBudget bytes at a time.
+ * 2) Sort each chunk in memory with MergeSort.
+ * 3) Spill each sorted chunk as a run of raw 4-byte big-endian ints into a temporary file.
+ * 4) Merge up to fanIn runs at a time with a min-heap, repeating passes until one run is left,
+ *    and write the final pass as text, one integer per line.
+ */
+public class ExternalMergeSort {
+
+  public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+  public static final int DEFAULT_FAN_IN = 64;
+
+  /* Size of the input file's memory-mapped windows */
+  private static final int MAP_WINDOW = 1 << 26;
+
+  /* Bounds of the buffer size of each run reader and writer */
+  private static final int MIN_IO_BUFFER = 1 << 12;
+  private static final int MAX_IO_BUFFER = 1 << 20;
+
+  private final long memoryBudget;
+  private final int fanIn;
+  private final File tmpDir;
+
+  /**
+   * Usage: java ExternalMergeSort [<input> <output> [memoryBudgetBytes] [fanIn]].
+   * Without arguments, sort a random file with a small budget and fan-in, then check the result.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length >= 2) {
+      long budget = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_MEMORY_BUDGET;
+      int fanIn = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FAN_IN;
+      long start = System.currentTimeMillis();
+      long n = new ExternalMergeSort(budget, fanIn, null).sort(new File(args[0]), new File(args[1]));
+      System.out.println(String.format("Sorted %d integers in %d ms", n, System.currentTimeMillis() - start));
+      return;
+    }
+
+    Random random = new Random();
+    final int n = 1_000_003;
+    int[] expected = new int[n];
+    File input = File.createTempFile("external-sort-in", ".txt");
+    File output = File.createTempFile("external-sort-out", ".txt");
+    input.deleteOnExit();
+    output.deleteOnExit();
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(input),
+                                                                   StandardCharsets.US_ASCII))) {
+      for (int i = 0; i < n; i++) {
+        expected[i] = random.nextInt();
+        writer.write(Integer.toString(expected[i]));
+        writer.write(random.nextInt(10) == 0 ? "  \t" : "\n");
+      }
+    }
+    Arrays.sort(expected);
+
+    // 1MB budget => 8 runs; fan-in 3 => 2 merge passes
+    long count = new ExternalMergeSort(1L << 20, 3, null).sort(input, output);
+    if (count != n) {
+      throw new AssertionError(String.format("sorted %d integers; expected %d", count, n));
+    }
+    int[] actual = new int[n];
+    try (MappedTextIntReader reader = new MappedTextIntReader(output)) {
+      if (reader.fill(actual) != n) {
+        throw new AssertionError("Output has the wrong number of integers!");
+      }
+    }
+    if (!Arrays.equals(actual, expected)) {
+      throw new AssertionError("Output is Not sorted!");
+    }
+
+    // The int range bounds parse; anything Scanner.nextInt would reject is an error, not a wrong number
+    int[] bounds = new int[3];
+    if (parse("2147483647\n-2147483648\r\n-0", bounds) != 3
+        || bounds[0] != Integer.MAX_VALUE || bounds[1] != Integer.MIN_VALUE || bounds[2] != 0) {
+      throw new AssertionError("The int range bounds are parsed wrongly: " + Arrays.toString(bounds));
+    }
+    String[] badInputs = {"1 3000000000 2", "2147483648", "-2147483649", "123456789012345678901234", "1.5",
+                          "7 - 8", "1-2", "--3", "12abc", "4 -"};
+    for (String bad : badInputs) {
+      try {
+        parse(bad, new int[16]);
+        throw new AssertionError(String.format("'%s' is parsed without an error!", bad));
+      } catch (NumberFormatException expectedError) {}
+    }
+  }
+
+  /* Utility method for testing MappedTextIntReader: parse text into buf, return how many integers were read */
+  private static int parse(String text, int[] buf) throws IOException {
+    File file = File.createTempFile("external-sort-parse", ".txt");
+    file.deleteOnExit();
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII)) {
+      writer.write(text);
+    }
+    try (MappedTextIntReader reader = new MappedTextIntReader(file)) {
+      return reader.fill(buf);
+    }
+  }
+
+  /**
+   * Use at most about memoryBudget bytes of heap for in-memory sorting and merge buffers,
+   * and merge at most fanIn runs at once. Runs are spilled into tmpDir, or the default
+   * temporary-file directory when tmpDir is null.
+   */
+  public ExternalMergeSort(long memoryBudget, int fanIn, File tmpDir) {
+    if (memoryBudget < 16) {
+      throw new IllegalArgumentException(String.format("memoryBudget %d is too small", memoryBudget));
+    }
+    if (fanIn < 2) {
+      throw new IllegalArgumentException(String.format("fanIn %d must be at least 2", fanIn));
+    }
+    this.memoryBudget = memoryBudget;
+    this.fanIn = fanIn;
+    this.tmpDir = tmpDir;
+  }
+
+  /**
+   * Sort the integers of text file input into text file output. Return the number of integers.
+   * Throw NumberFormatException, with its file offset, on a token that is not an int.
+   */
+  public long sort(File input, File output) throws IOException {
+    if (input == null || output == null) {
+      throw new NullPointerException("The input file or output file is null!");
+    }
+
+    List<File> runs = new ArrayList<>();
+    try {
+      long count = createRuns(input, runs);
+      while (runs.size() > fanIn) {
+        List<File> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += fanIn) {
+          List<File> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+          File run = newRunFile();
+          merged.add(run);
+          try (IntSink sink = new BinaryRunWriter(run, ioBufferSize())) {
+            merge(group, sink);
+          }
+          for (File f : group) {
+            f.delete();
+          }
+        }
+        runs = merged;
+      }
+      try (IntSink sink = new TextWriter(output)) {
+        merge(runs, sink);
+      }
+      return count;
+    } finally {
+      for (File f : runs) {
+        f.delete();
+      }
+    }
+  }
+
+  /* Read input chunk by chunk, sort each chunk and spill it into a new run. Return total count. */
+  private long createRuns(File input, List<File> runs) throws IOException {
+    // Half of the budget for the chunk, the other half for MergeSort's buffer
+    final int chunkLen = (int) Math.min(memoryBudget / 8, Integer.MAX_VALUE - 8);
+    int[] chunk = new int[chunkLen];
+    int[] aux = new int[chunkLen];
+    long count = 0;
+    try (MappedTextIntReader reader = new MappedTextIntReader(input)) {
+      int len;
+      while ((len = reader.fill(chunk)) > 0) {
+        // Only the last chunk can be short, and only its prefix is sorted: no copy beyond the budget
+        MergeSort.sort(chunk, len, aux);
+        File run = newRunFile();
+        runs.add(run);
+        try (IntSink sink = new BinaryRunWriter(run, ioBufferSize())) {
+          for (int i = 0; i < len; i++) {
+            sink.write(chunk[i]);
+          }
+        }
+        count += len;
+      }
+    }
+    return count;
+  }
+
+  /*
+   * k-way merge of the given runs into sink.
+   * The heap holds one entry per non-exhausted run, keyed by that run's current head.
+   */
+  private void merge(List<File> runs, IntSink sink) throws IOException {
+    final int k = runs.size();
+    BinaryRunReader[] readers = new BinaryRunReader[k];
+    int[] heapRun = new int[k];
+    int[] heapKey = new int[k];
+    int size = 0;
+    try {
+      for (int r = 0; r < k; r++) {
+        readers[r] = new BinaryRunReader(runs.get(r), ioBufferSize());
+        if (readers[r].hasNext()) {
+          heapRun[size] = r;
+          heapKey[size] = readers[r].next();
+          swim(heapRun, heapKey, size++);
+        }
+      }
+      while (size > 0) {
+        sink.write(heapKey[0]);
+        BinaryRunReader reader = readers[heapRun[0]];
+        if (reader.hasNext()) {
+          heapKey[0] = reader.next();
+        } else {
+          size--;
+          heapRun[0] = heapRun[size];
+          heapKey[0] = heapKey[size];
+        }
+        sink(heapRun, heapKey, 0, size);
+      }
+    } finally {
+      for (BinaryRunReader reader : readers) {
+        if (reader != null) {
+          reader.close();
+        }
+      }
+    }
+  }
+
+  /* Restore heap order by moving entry i up */
+  private static void swim(int[] heapRun, int[] heapKey, int i) {
+    while (i > 0) {
+      int parent = (i - 1) / 2;
+      if (heapKey[parent] <= heapKey[i]) {
+        break;
+      }
+      swap(heapRun, heapKey, parent, i);
+      i = parent;
+    }
+  }
+
+  /* Restore heap order of heap[0..size-1] by moving entry i down */
+  private static void sink(int[] heapRun, int[] heapKey, int i, int size) {
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heapKey[child + 1] < heapKey[child]) {
+        child++;
+      }
+      if (heapKey[i] <= heapKey[child]) {
+        break;
+      }
+      swap(heapRun, heapKey, i, child);
+      i = child;
+    }
+  }
+
+  /* Helper method for exchanging ith and jth heap entries */
+  private static void swap(int[] heapRun, int[] heapKey, int i, int j) {
+    int run = heapRun[i];
+    heapRun[i] = heapRun[j];
+    heapRun[j] = run;
+    int key = heapKey[i];
+    heapKey[i] = heapKey[j];
+    heapKey[j] = key;
+  }
+
+  /* Each of the fanIn readers plus the writer gets an equal share of the budget */
+  private int ioBufferSize() {
+    long share = memoryBudget / (fanIn + 1);
+    return (int) Math.max(MIN_IO_BUFFER, Math.min(MAX_IO_BUFFER, share)) & ~3;
+  }
+
+  private File newRunFile() throws IOException {
+    File run = File.createTempFile("run", ".bin", tmpDir);
+    run.deleteOnExit();
+    return run;
+  }
+
+
+  /* Destination of a merge */
+  private interface IntSink extends Closeable {
+    void write(int x) throws IOException;
+  }
+
+  /* Writes a run as raw big-endian ints */
+  private static class BinaryRunWriter implements IntSink {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private BinaryRunWriter(File file, int bufferSize) throws IOException {
+      channel = new FileOutputStream(file).getChannel();
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public void write(int x) throws IOException {
+      if (buffer.remaining() < 4) {
+        flush();
+      }
+      buffer.putInt(x);
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    public void close() throws IOException {
+      flush();
+      channel.close();
+    }
+  }
+
+  /* Reads back a run written by BinaryRunWriter */
+  private static class BinaryRunReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private BinaryRunReader(File file, int bufferSize) throws IOException {
+      channel = new RandomAccessFile(file, "r").getChannel();
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+      buffer.flip();
+    }
+
+    private boolean hasNext() throws IOException {
+      if (buffer.remaining() >= 4) {
+        return true;
+      }
+      buffer.compact();
+      int read = 0;
+      while (buffer.position() < 4 && read >= 0) {
+        read = channel.read(buffer);
+      }
+      buffer.flip();
+      return buffer.remaining() >= 4;
+    }
+
+    private int next() {
+      return buffer.getInt();
+    }
+
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /* Writes the final output, one integer per line */
+  private static class TextWriter implements IntSink {
+    private final Writer writer;
+
+    private TextWriter(File file) throws IOException {
+      writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII),
+                                  MAX_IO_BUFFER);
+    }
+
+    public void write(int x) throws IOException {
+      writer.write(Integer.toString(x));
+      writer.write('\n');
+    }
+
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  /*
+   * Parses whitespace-separated integers straight out of memory-mapped windows of a text file.
+   * A number split across two windows is carried over in value/negative/inNumber.
+   * As with Scanner.nextInt, a token that is not an optional '-' followed by digits, or that is out of the
+   * int range, is rejected with a NumberFormatException giving its file offset rather than read as a wrong number.
+   */
+  private static class MappedTextIntReader implements Closeable {
+    private final FileChannel channel;
+    private final long size;
+    private long offset;
+    private MappedByteBuffer window;
+    private long value;
+    private boolean negative;
+    private boolean inNumber;
+
+    private MappedTextIntReader(File file) throws IOException {
+      channel = new RandomAccessFile(file, "r").getChannel();
+      size = channel.size();
+    }
+
+    /* Fill buf with the next integers. Return how many were read, 0 at end of file. */
+    private int fill(int[] buf) throws IOException {
+      int count = 0;
+      while (count < buf.length) {
+        if (window == null || !window.hasRemaining()) {
+          if (offset >= size) {
+            if (negative || inNumber) {
+              buf[count++] = endNumber();
+            }
+            break;
+          }
+          long len = Math.min(MAP_WINDOW, size - offset);
+          window = channel.map(FileChannel.MapMode.READ_ONLY, offset, len);
+          offset += len;
+        }
+        while (count < buf.length && window.hasRemaining()) {
+          byte c = window.get();
+          if (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            inNumber = true;
+            // checked at every digit, so value never gets near overflowing the long
+            if (value > Integer.MAX_VALUE + 1L) {
+              throw badToken("out of the int range");
+            }
+          } else if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B) {
+            if (negative || inNumber) {
+              buf[count++] = endNumber();
+            }
+          } else if (c == '-' && !negative && !inNumber) {
+            negative = true;
+          } else {
+            throw badToken(String.format("unexpected byte 0x%02x", c & 0xFF));
+          }
+        }
+      }
+      return count;
+    }
+
+    private int endNumber() {
+      if (!inNumber) {
+        throw badToken("'-' without digits");
+      }
+      if (!negative && value > Integer.MAX_VALUE) {
+        throw badToken("out of the int range");
+      }
+      int x = (int) (negative ? -value : value);
+      value = 0;
+      negative = false;
+      inNumber = false;
+      return x;
+    }
+
+    /* Error for the token at the byte last read */
+    private NumberFormatException badToken(String reason) {
+      long position = offset - window.remaining() - 1;
+      return new NumberFormatException(String.format("Bad integer at file offset %d: %s", position, reason));
+    }
+
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+}
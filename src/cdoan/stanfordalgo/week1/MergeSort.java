@@ -1,9 +1,13 @@
 package cdoan.stanfordalgo.week1;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class MergeSort {
 
+  /* Subarrays with at most this many elements are insertion sorted by Strategy.OPTIMIZED */
+  private static final int INSERTION_SORT_CUTOFF = 7;
+
   /**
    * Test sort method using a random integer array as input.
    */
@@ -15,6 +19,23 @@ public class MergeSort {
       if (!isSorted(a)) {
         throw new AssertionError("The array is Not sorted!");
       }
+      a = randomIntegerArr();
+      sort(a, new Integer[a.length], Strategy.OPTIMIZED);
+      if (!isSorted(a)) {
+        throw new AssertionError("The array is Not sorted by Strategy.OPTIMIZED!");
+      }
+    }
+    double[] d = {1.0, Double.NaN, 0.0, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.NaN, -1.0};
+    double[] expected = d.clone();
+    Arrays.sort(expected);
+    sort(d, new double[d.length]);
+    if (!Arrays.equals(d, expected)) {
+      throw new AssertionError("The double array with NaN and signed zeros is Not sorted: " + Arrays.toString(d));
+    }
+    int[] prefix = {5, 3, 9, 1, 7, 2, 8};
+    sort(prefix, 4, new int[4]);
+    if (!Arrays.equals(prefix, new int[] {1, 3, 5, 9, 7, 2, 8})) {
+      throw new AssertionError("The prefix of 4 is Not sorted alone: " + Arrays.toString(prefix));
     }
   }
 
@@ -33,6 +54,92 @@ public class MergeSort {
    * Sort array a using array aux as buffer.
    */
   public static <T extends Comparable<T>> void sort(T[] a, T[] aux) {
+    sort(a, aux, Strategy.CLASSIC);
+  }
+
+  /**
+   * Sort array a using array aux as buffer, with the given variant of the recursion.
+   */
+  public static <T extends Comparable<T>> void sort(T[] a, T[] aux, Strategy strategy) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    if (strategy == null) {
+      throw new NullPointerException("The strategy is null!");
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    if (strategy == Strategy.OPTIMIZED) {
+      sortOptimized(a, 0, n - 1, aux);
+    } else {
+      sort(a, 0, n - 1, aux);
+    }
+  }
+
+  /**
+   * Sort int array a using array aux as buffer. No allocation happens inside the recursion.
+   */
+  public static void sort(int[] a, int[] aux) {
+    if (a == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    sort(a, a.length, aux);
+  }
+
+  /**
+   * Sort the first len elements of int array a using array aux, of at least len elements, as buffer;
+   * the rest of a is left alone. No allocation happens inside the recursion.
+   */
+  public static void sort(int[] a, int len, int[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (len < 0 || len > a.length) {
+      throw new IllegalArgumentException(String.format("Length %d out of range 0..%d!", len, a.length));
+    }
+    if (aux.length < len) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than the sorted prefix!");
+    }
+
+    System.arraycopy(a, 0, aux, 0, len);
+    sort(a, 0, len - 1, aux);
+  }
+
+  /**
+   * Sort long array a using array aux as buffer. No allocation happens inside the recursion.
+   */
+  public static void sort(long[] a, long[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    sort(a, 0, n - 1, aux);
+  }
+
+  /**
+   * Sort double array a using array aux as buffer. No allocation happens inside the recursion.
+   * The order is that of Double.compare, as for Arrays.sort: -0.0 before 0.0 and NaN last.
+   */
+  public static void sort(double[] a, double[] aux) {
     if (a == null || aux == null) {
       throw new NullPointerException("The input array or auxiliary array is null!");
     }
@@ -80,7 +187,175 @@ public class MergeSort {
       a[k++] = aux[j++];
     }
   }
-  
+
+  /*
+   * Recursively sort a[lo..hi] using aux as buffer:
+   * short subarrays are insertion sorted in place, and the merge of two halves is replaced by
+   * a plain copy when they are already in order. Like the classic recursion, a and aux swap
+   * roles at each level, so there is no per-merge copy into aux.
+   */
+  private static <T extends Comparable<T>> void sortOptimized(T[] a, int lo, int hi, T[] aux) {
+    if (hi - lo < INSERTION_SORT_CUTOFF) {
+      insertionSort(a, lo, hi);
+      return;
+    }
+
+    int mid = (lo + hi) / 2;
+    sortOptimized(aux, lo, mid, a);
+    sortOptimized(aux, mid + 1, hi, a);
+    if (!less(aux[mid + 1], aux[mid])) {
+      // aux[lo..hi] is already sorted
+      System.arraycopy(aux, lo, a, lo, hi - lo + 1);
+      return;
+    }
+    mergeStable(aux, lo, mid, hi, a);
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi], taking from the left half on ties */
+  private static <T extends Comparable<T>> void mergeStable(T[] aux, int lo, int mid, int hi, T[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (less(aux[j], aux[i])) {
+        a[k++] = aux[j++];
+      } else {
+        a[k++] = aux[i++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+
+  /* Sort a[lo..hi] using InsertionSort algo */
+  private static <T extends Comparable<T>> void insertionSort(T[] a, int lo, int hi) {
+    for (int i = lo + 1; i <= hi; i++) {
+      T x = a[i];
+      int pos = i;
+      while (pos > lo && less(x, a[pos - 1])) {
+        a[pos] = a[pos - 1];
+        pos--;
+      }
+      a[pos] = x;
+    }
+  }
+
+
+  /**
+   * Variant of the top-down recursion used by sort(a, aux, strategy).
+   */
+  public enum Strategy {
+    /** Textbook recursion down to single elements. */
+    CLASSIC,
+    /**
+     * Insertion-sorted leaves plus skipping of merges whose halves are already in order.
+     * Unlike CLASSIC this variant is stable. It pays off on partially ordered input;
+     * on random keys it is no faster than CLASSIC (see MergeSortBenchmark).
+     */
+    OPTIMIZED
+  }
+
+
+  /* Recursively sort a[lo..hi] using aux as buffer */
+  private static void sort(int[] a, int lo, int hi, int[] aux) {
+    if (lo >= hi) {
+      return;
+    }
+
+    int mid = (lo + hi) / 2;
+    sort(aux, lo, mid, a);
+    sort(aux, mid + 1, hi, a);
+    merge(aux, lo, mid, hi, a);
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(int[] aux, int lo, int mid, int hi, int[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[i] < aux[j]) {
+        a[k++] = aux[i++];
+      } else {
+        a[k++] = aux[j++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+
+  /* Recursively sort a[lo..hi] using aux as buffer */
+  private static void sort(long[] a, int lo, int hi, long[] aux) {
+    if (lo >= hi) {
+      return;
+    }
+
+    int mid = (lo + hi) / 2;
+    sort(aux, lo, mid, a);
+    sort(aux, mid + 1, hi, a);
+    merge(aux, lo, mid, hi, a);
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(long[] aux, int lo, int mid, int hi, long[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[i] < aux[j]) {
+        a[k++] = aux[i++];
+      } else {
+        a[k++] = aux[j++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+
+  /* Recursively sort a[lo..hi] using aux as buffer */
+  private static void sort(double[] a, int lo, int hi, double[] aux) {
+    if (lo >= hi) {
+      return;
+    }
+
+    int mid = (lo + hi) / 2;
+    sort(aux, lo, mid, a);
+    sort(aux, mid + 1, hi, a);
+    merge(aux, lo, mid, hi, a);
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(double[] aux, int lo, int mid, int hi, double[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      // Double.compare orders -0.0 before 0.0 and NaN last, as Arrays.sort does
+      if (Double.compare(aux[j], aux[i]) < 0) {
+        a[k++] = aux[j++];
+      } else {
+        a[k++] = aux[i++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
   
   /* Helper method for testing if v is less than w */
   private static <T extends Comparable<T>> boolean less(T v, T w) {
@@ -0,0 +1,148 @@
+package cdoan.stanfordalgo.week1;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Compare boxed Integer[] merge sort against the primitive int[] overloads
+ * of MergeSort and MergeSortBottomUp on the same random input, plus the classic and
+ * optimized MergeSort strategies against each other on random and nearly sorted input.
+ */
+public class MergeSortBenchmark {
+
+  /**
+   * Usage: java MergeSortBenchmark [n] [rounds]
+   */
+  public static void main(String[] args) {
+    int n = 5_000_000;
+    int rounds = 5;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+        if (args.length > 1) {
+          rounds = Integer.parseInt(args[1]);
+        }
+      } catch (NumberFormatException nfe) {}
+    }
+
+    int[] input = randomIntArr(n);
+    int[] expected = input.clone();
+    Arrays.sort(expected);
+    int[] nearlySortedInput = nearlySortedIntArr(n);
+    int[] nearlySortedExpected = nearlySortedInput.clone();
+    Arrays.sort(nearlySortedExpected);
+
+    Integer[] boxed = new Integer[n];
+    Integer[] boxedAux = new Integer[n];
+    int[] a = new int[n];
+    int[] aux = new int[n];
+    long boxedTopDown = Long.MAX_VALUE;
+    long boxedOptimized = Long.MAX_VALUE;
+    long nearlySortedClassic = Long.MAX_VALUE;
+    long nearlySortedOptimized = Long.MAX_VALUE;
+    long boxedBottomUp = Long.MAX_VALUE;
+    long intTopDown = Long.MAX_VALUE;
+    long intBottomUp = Long.MAX_VALUE;
+    for (int round = 0; round < rounds; round++) {
+      // The sort run first in a round is favored by the layout of the freshly boxed keys,
+      // so the two strategies take turns going first
+      for (int turn = 0; turn < 2; turn++) {
+        MergeSort.Strategy strategy = (turn + round) % 2 == 0 ? MergeSort.Strategy.CLASSIC
+                                                             : MergeSort.Strategy.OPTIMIZED;
+        box(input, boxed);
+        long start = System.nanoTime();
+        MergeSort.sort(boxed, boxedAux, strategy);
+        long time = System.nanoTime() - start;
+        check(boxed, expected);
+        box(nearlySortedInput, boxed);
+        start = System.nanoTime();
+        MergeSort.sort(boxed, boxedAux, strategy);
+        long nearlySortedTime = System.nanoTime() - start;
+        check(boxed, nearlySortedExpected);
+        if (strategy == MergeSort.Strategy.CLASSIC) {
+          boxedTopDown = Math.min(boxedTopDown, time);
+          nearlySortedClassic = Math.min(nearlySortedClassic, nearlySortedTime);
+        } else {
+          boxedOptimized = Math.min(boxedOptimized, time);
+          nearlySortedOptimized = Math.min(nearlySortedOptimized, nearlySortedTime);
+        }
+      }
+
+      box(input, boxed);
+      long start = System.nanoTime();
+      Integer[] boxedRes = MergeSortBottomUp.sort(boxed, boxedAux);
+      boxedBottomUp = Math.min(boxedBottomUp, System.nanoTime() - start);
+      check(boxedRes, expected);
+
+      System.arraycopy(input, 0, a, 0, n);
+      start = System.nanoTime();
+      MergeSort.sort(a, aux);
+      intTopDown = Math.min(intTopDown, System.nanoTime() - start);
+      check(a, expected);
+
+      System.arraycopy(input, 0, a, 0, n);
+      start = System.nanoTime();
+      int[] res = MergeSortBottomUp.sort(a, aux);
+      intBottomUp = Math.min(intBottomUp, System.nanoTime() - start);
+      check(res, expected);
+    }
+
+    System.out.println(String.format("n = %d, best of %d rounds (ms)", n, rounds));
+    System.out.println(String.format("  top-down   Integer[] %8.1f  int[] %8.1f  speedup %.2fx",
+                                     boxedTopDown / 1e6, intTopDown / 1e6,
+                                     (double) boxedTopDown / intTopDown));
+    System.out.println(String.format("  top-down   Classic   %8.1f  Optimized %6.1f  speedup %.2fx",
+                                     boxedTopDown / 1e6, boxedOptimized / 1e6,
+                                     (double) boxedTopDown / boxedOptimized));
+    System.out.println(String.format("  nearly sorted Classic %5.1f  Optimized %6.1f  speedup %.2fx",
+                                     nearlySortedClassic / 1e6, nearlySortedOptimized / 1e6,
+                                     (double) nearlySortedClassic / nearlySortedOptimized));
+    System.out.println(String.format("  bottom-up  Integer[] %8.1f  int[] %8.1f  speedup %.2fx",
+                                     boxedBottomUp / 1e6, intBottomUp / 1e6,
+                                     (double) boxedBottomUp / intBottomUp));
+  }
+
+  /* Utility method for preparing test data */
+  private static int[] randomIntArr(int n) {
+    Random random = new Random();
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = random.nextInt();
+    }
+    return result;
+  }
+
+  /* Append-mostly log: 1% of the keys arrive up to 1000 positions late */
+  private static int[] nearlySortedIntArr(int n) {
+    Random random = new Random();
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = random.nextInt(100) == 0 ? i - random.nextInt(1000) : i;
+    }
+    return result;
+  }
+
+  private static void box(int[] src, Integer[] dst) {
+    for (int i = 0; i < src.length; i++) {
+      dst[i] = src[i];
+    }
+  }
+
+  private static void check(int[] actual, int[] expected) {
+    for (int i = 0; i < expected.length; i++) {
+      if (actual[i] != expected[i]) {
+        throw new AssertionError("The array is Not sorted!");
+      }
+    }
+  }
+
+  private static void check(Integer[] actual, int[] expected) {
+    for (int i = 0; i < expected.length; i++) {
+      if (actual[i] != expected[i]) {
+        throw new AssertionError("The array is Not sorted!");
+      }
+    }
+  }
+
+}
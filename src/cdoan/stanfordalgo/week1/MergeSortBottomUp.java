@@ -1,9 +1,16 @@
 package cdoan.stanfordalgo.week1;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class MergeSortBottomUp {
 
+  /* Arrays shorter than this are sorted by sortAdaptive with a single binary insertion sort */
+  private static final int MIN_MERGE = 32;
+
+  /* Enough pending runs for any int-sized array under the run-stack invariants */
+  private static final int MAX_RUN_STACK = 64;
+
   /**
    * Test sort method using a random integer array as input.
    */
@@ -15,6 +22,66 @@ public class MergeSortBottomUp {
       if (!isSorted(a)) {
         throw new AssertionError("The array is Not sorted!");
       }
+      a = randomIntegerArr();
+      a = sortAdaptive(a, new Integer[a.length]);
+      if (!isSorted(a)) {
+        throw new AssertionError("The array is Not sorted by sortAdaptive!");
+      }
+    }
+    double[] d = {1.0, Double.NaN, 0.0, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.NaN, -1.0};
+    double[] expected = d.clone();
+    Arrays.sort(expected);
+    d = sort(d, new double[d.length]);
+    if (!Arrays.equals(d, expected)) {
+      throw new AssertionError("The double array with NaN and signed zeros is Not sorted: " + Arrays.toString(d));
+    }
+
+    /* Count comparisons made by sort and sortAdaptive on random and nearly sorted input */
+    final int n = 1_000_000;
+    Random random = new Random();
+    CountingKey[] random1 = new CountingKey[n];
+    CountingKey[] nearlySorted = new CountingKey[n];
+    for (int i = 0; i < n; i++) {
+      random1[i] = new CountingKey(random.nextInt());
+      // append-mostly log: 1% of the events arrive up to 1000 positions late
+      nearlySorted[i] = new CountingKey(random.nextInt(100) == 0 ? i - random.nextInt(1000) : i);
+    }
+    reportComparisons("random", random1);
+    reportComparisons("nearly sorted", nearlySorted);
+    reportComparisons("sorted", sortAdaptive(nearlySorted.clone(), new CountingKey[n]));
+  }
+
+  /* Print the number of comparisons sort and sortAdaptive make on copies of a */
+  private static void reportComparisons(String label, CountingKey[] a) {
+    final int n = a.length;
+    CountingKey.comparisons = 0;
+    CountingKey[] res = sort(a.clone(), new CountingKey[n]);
+    long classic = CountingKey.comparisons;
+    if (!isSorted(res)) {
+      throw new AssertionError("The array is Not sorted!");
+    }
+    CountingKey.comparisons = 0;
+    res = sortAdaptive(a.clone(), new CountingKey[n]);
+    long adaptive = CountingKey.comparisons;
+    if (!isSorted(res)) {
+      throw new AssertionError("The array is Not sorted by sortAdaptive!");
+    }
+    System.out.println(String.format("%-14s n = %d  sort: %,d comparisons  sortAdaptive: %,d comparisons",
+                                     label, n, classic, adaptive));
+  }
+
+  /* Utility key type which counts calls to compareTo */
+  private static class CountingKey implements Comparable<CountingKey> {
+    private static long comparisons;
+    private final int key;
+
+    private CountingKey(int key) {
+      this.key = key;
+    }
+
+    public int compareTo(CountingKey that) {
+      comparisons++;
+      return Integer.compare(key, that.key);
     }
   }
 
@@ -78,6 +145,183 @@ public class MergeSortBottomUp {
     
     return aux;
   }
+
+  /**
+   * Sort array a using array aux as buffer, adapting to the order already present in a.
+   * Ascending runs are detected as is, strictly descending runs are reversed, short runs are
+   * extended by insertion sort, and runs are merged following TimSort's run-stack policy.
+   * Presorted or nearly sorted input therefore costs close to n comparisons. The sort is stable.
+   * Unlike sort, the result is always left in a, which is also returned.
+   */
+  public static <T extends Comparable<T>> T[] sortAdaptive(T[] a, T[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    final int n = a.length;
+    if (n < 2) {
+      return a;
+    }
+    RunMerger<T> merger = new RunMerger<>(a, aux);
+    final int minRun = minRunLength(n);
+    int lo = 0;
+    while (lo < n) {
+      int runLen = countRunAndMakeAscending(a, lo, n);
+      if (runLen < minRun) {
+        // extend the run to min(minRun, n - lo) elements
+        int force = Math.min(minRun, n - lo);
+        binaryInsertionSort(a, lo, lo + force, lo + runLen);
+        runLen = force;
+      }
+      merger.pushRun(lo, runLen);
+      merger.mergeCollapse();
+      lo += runLen;
+    }
+    merger.mergeForceCollapse();
+    return a;
+  }
+
+  /**
+   * Sort int array a using array aux as buffer.
+   * Return whichever of a and aux holds the sorted result.
+   */
+  public static int[] sort(int[] a, int[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    for (int size = 1; size < n; size *= 2) {
+      int lo = 0;
+      int mid = size - 1;
+      int hi = mid + size;
+      while (hi < n) {
+        merge(aux, lo, mid, hi, a);
+        lo = hi + 1;
+        mid = lo + size - 1;
+        hi = mid + size;
+      }
+
+      if (lo < n) {
+        if (n - lo > size) {
+          merge(aux, lo, lo + size - 1, n - 1, a);
+        } else {
+          System.arraycopy(aux, lo, a, lo, n - lo);
+        }
+      }
+
+      // swap roles of a and aux
+      int[] tmp = a;
+      a = aux;
+      aux = tmp;
+    }
+
+    return aux;
+  }
+
+  /**
+   * Sort long array a using array aux as buffer.
+   * Return whichever of a and aux holds the sorted result.
+   */
+  public static long[] sort(long[] a, long[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    for (int size = 1; size < n; size *= 2) {
+      int lo = 0;
+      int mid = size - 1;
+      int hi = mid + size;
+      while (hi < n) {
+        merge(aux, lo, mid, hi, a);
+        lo = hi + 1;
+        mid = lo + size - 1;
+        hi = mid + size;
+      }
+
+      if (lo < n) {
+        if (n - lo > size) {
+          merge(aux, lo, lo + size - 1, n - 1, a);
+        } else {
+          System.arraycopy(aux, lo, a, lo, n - lo);
+        }
+      }
+
+      // swap roles of a and aux
+      long[] tmp = a;
+      a = aux;
+      aux = tmp;
+    }
+
+    return aux;
+  }
+
+  /**
+   * Sort double array a using array aux as buffer.
+   * The order is that of Double.compare, as for Arrays.sort: -0.0 before 0.0 and NaN last.
+   * Return whichever of a and aux holds the sorted result.
+   */
+  public static double[] sort(double[] a, double[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    for (int size = 1; size < n; size *= 2) {
+      int lo = 0;
+      int mid = size - 1;
+      int hi = mid + size;
+      while (hi < n) {
+        merge(aux, lo, mid, hi, a);
+        lo = hi + 1;
+        mid = lo + size - 1;
+        hi = mid + size;
+      }
+
+      if (lo < n) {
+        if (n - lo > size) {
+          merge(aux, lo, lo + size - 1, n - 1, a);
+        } else {
+          System.arraycopy(aux, lo, a, lo, n - lo);
+        }
+      }
+
+      // swap roles of a and aux
+      double[] tmp = a;
+      a = aux;
+      aux = tmp;
+    }
+
+    return aux;
+  }
   
   /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
   private static <T extends Comparable<T>> void merge(T[] aux, int lo, int mid, int hi, T[] a) {
@@ -100,6 +344,267 @@ public class MergeSortBottomUp {
   }
   
   
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(int[] aux, int lo, int mid, int hi, int[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[i] < aux[j]) {
+        a[k++] = aux[i++];
+      } else {
+        a[k++] = aux[j++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(long[] aux, int lo, int mid, int hi, long[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[i] < aux[j]) {
+        a[k++] = aux[i++];
+      } else {
+        a[k++] = aux[j++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+
+  /* Merge sorted aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] */
+  private static void merge(double[] aux, int lo, int mid, int hi, double[] a) {
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      // Double.compare orders -0.0 before 0.0 and NaN last, as Arrays.sort does
+      if (Double.compare(aux[j], aux[i]) < 0) {
+        a[k++] = aux[j++];
+      } else {
+        a[k++] = aux[i++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+  }
+  
+  /* Runs shorter than this are extended by insertion sort in sortAdaptive */
+  private static int minRunLength(int n) {
+    int r = 0;
+    while (n >= MIN_MERGE) {
+      r |= (n & 1);
+      n >>= 1;
+    }
+    return n + r;
+  }
+
+  /*
+   * Return the length of the run starting at a[lo] (within a[lo..hi-1]).
+   * A strictly descending run is reversed in place, so the run is ascending on return.
+   */
+  private static <T extends Comparable<T>> int countRunAndMakeAscending(T[] a, int lo, int hi) {
+    int runHi = lo + 1;
+    if (runHi == hi) {
+      return 1;
+    }
+    if (less(a[runHi++], a[lo])) {
+      while (runHi < hi && less(a[runHi], a[runHi - 1])) {
+        runHi++;
+      }
+      reverse(a, lo, runHi - 1);
+    } else {
+      while (runHi < hi && !less(a[runHi], a[runHi - 1])) {
+        runHi++;
+      }
+    }
+    return runHi - lo;
+  }
+
+  /* Reverse a[lo..hi] */
+  private static <T> void reverse(T[] a, int lo, int hi) {
+    while (lo < hi) {
+      T tmp = a[lo];
+      a[lo++] = a[hi];
+      a[hi--] = tmp;
+    }
+  }
+
+  /* Sort a[lo..hi-1] given that a[lo..start-1] is already sorted, using binary search for insertion points */
+  private static <T extends Comparable<T>> void binaryInsertionSort(T[] a, int lo, int hi, int start) {
+    for (; start < hi; start++) {
+      T pivot = a[start];
+      int pos = upperBound(a, lo, start, pivot);
+      System.arraycopy(a, pos, a, pos + 1, start - pos);
+      a[pos] = pivot;
+    }
+  }
+
+  /* Return the first index in a[lo..hi-1] whose element is greater than x, or hi */
+  private static <T extends Comparable<T>> int upperBound(T[] a, int lo, int hi, T x) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (less(x, a[mid])) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /* Return the first index in a[lo..hi-1] whose element is not less than x, or hi */
+  private static <T extends Comparable<T>> int lowerBound(T[] a, int lo, int hi, T x) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (less(a[mid], x)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /*
+   * Stack of pending sorted runs of sortAdaptive. Run lengths on the stack are kept such that
+   * runLen[i-2] > runLen[i-1] + runLen[i] and runLen[i-1] > runLen[i], which bounds the stack
+   * depth by O(log n) and keeps merges balanced.
+   */
+  private static class RunMerger<T extends Comparable<T>> {
+    private final T[] a;
+    private final T[] aux;
+    private final int[] runBase = new int[MAX_RUN_STACK];
+    private final int[] runLen = new int[MAX_RUN_STACK];
+    private int stackSize = 0;
+
+    private RunMerger(T[] a, T[] aux) {
+      this.a = a;
+      this.aux = aux;
+    }
+
+    private void pushRun(int base, int len) {
+      runBase[stackSize] = base;
+      runLen[stackSize] = len;
+      stackSize++;
+    }
+
+    /* Merge runs on top of the stack until the invariants hold again */
+    private void mergeCollapse() {
+      while (stackSize > 1) {
+        int n = stackSize - 2;
+        if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+            || (n > 1 && runLen[n - 2] <= runLen[n - 1] + runLen[n])) {
+          if (runLen[n - 1] < runLen[n + 1]) {
+            n--;
+          }
+          mergeAt(n);
+        } else if (runLen[n] <= runLen[n + 1]) {
+          mergeAt(n);
+        } else {
+          break;
+        }
+      }
+    }
+
+    /* Merge all remaining runs into one */
+    private void mergeForceCollapse() {
+      while (stackSize > 1) {
+        int n = stackSize - 2;
+        if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+          n--;
+        }
+        mergeAt(n);
+      }
+    }
+
+    /* Merge adjacent runs i and i+1 of the stack */
+    private void mergeAt(int i) {
+      int base1 = runBase[i];
+      int len1 = runLen[i];
+      int base2 = runBase[i + 1];
+      int len2 = runLen[i + 1];
+
+      runLen[i] = len1 + len2;
+      if (i == stackSize - 3) {
+        runBase[i + 1] = runBase[i + 2];
+        runLen[i + 1] = runLen[i + 2];
+      }
+      stackSize--;
+
+      // Elements of run1 not greater than run2's first element are already in place
+      int k = upperBound(a, base1, base1 + len1, a[base2]);
+      len1 -= k - base1;
+      base1 = k;
+      if (len1 == 0) {
+        return;
+      }
+      // Elements of run2 not less than run1's last element are already in place
+      len2 = lowerBound(a, base2, base2 + len2, a[base1 + len1 - 1]) - base2;
+      if (len2 == 0) {
+        return;
+      }
+
+      if (len1 <= len2) {
+        mergeLo(base1, len1, base2, len2);
+      } else {
+        mergeHi(base1, len1, base2, len2);
+      }
+    }
+
+    /* Merge by copying run1 into aux then filling a from the left */
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+      System.arraycopy(a, base1, aux, base1, len1);
+      int i = base1;
+      int j = base2;
+      int k = base1;
+      final int end1 = base1 + len1;
+      final int end2 = base2 + len2;
+      while (i < end1 && j < end2) {
+        if (less(a[j], aux[i])) {
+          a[k++] = a[j++];
+        } else {
+          a[k++] = aux[i++];
+        }
+      }
+      // Whatever remains of run2 is already in place
+      System.arraycopy(aux, i, a, k, end1 - i);
+    }
+
+    /* Merge by copying run2 into aux then filling a from the right */
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+      System.arraycopy(a, base2, aux, base2, len2);
+      int i = base1 + len1 - 1;
+      int j = base2 + len2 - 1;
+      int k = j;
+      while (i >= base1 && j >= base2) {
+        if (less(aux[j], a[i])) {
+          a[k--] = a[i--];
+        } else {
+          a[k--] = aux[j--];
+        }
+      }
+      // Whatever remains of run1 is already in place
+      System.arraycopy(aux, base2, a, base1, j - base2 + 1);
+    }
+  }
+  
   /* Helper method for testing if v is less than w */
   private static <T extends Comparable<T>> boolean less(T v, T w) {
     return v.compareTo(w) < 0;
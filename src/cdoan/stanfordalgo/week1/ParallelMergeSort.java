@@ -0,0 +1,270 @@
+package cdoan.stanfordalgo.week1;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Fork-join merge sort. Both the recursive sorts of the two halves and the merge step itself
+ * are split into tasks, so the top-level merges don't run on a single core.
+ * The output is element-for-element the same as MergeSort.sort's: on equal keys the element
+ * from the right run is taken first, exactly as MergeSort.merge does.
+ */
+public class ParallelMergeSort {
+
+  /** Subarrays (and merges) shorter than this are handled sequentially. */
+  public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+  /**
+   * Test sort against MergeSort.sort, then report scaling from 1 to N threads.
+   * Usage: java ParallelMergeSort [n]
+   */
+  public static void main(String[] args) {
+    Random random = new Random();
+    for (int test = 0; test < 300; ++test) {
+      int len = random.nextInt(5000);
+      Integer[] a = new Integer[len];
+      for (int i = 0; i < len; i++) {
+        // few distinct keys outside the Integer cache, so == below checks element identity
+        a[i] = 1000 + random.nextInt(100);
+      }
+      Integer[] expected = a.clone();
+      MergeSort.sort(expected, new Integer[len]);
+      sort(a, new Integer[len], ForkJoinPool.commonPool(), 1 + random.nextInt(64));
+      for (int i = 0; i < len; i++) {
+        if (a[i] != expected[i]) {
+          throw new AssertionError("ParallelMergeSort output differs from MergeSort's!");
+        }
+      }
+    }
+
+    int n = 2_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    Integer[] input = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = random.nextInt();
+    }
+    Integer[] a = new Integer[n];
+    Integer[] aux = new Integer[n];
+    final int maxThreads = Runtime.getRuntime().availableProcessors();
+    long base = 0;
+    for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long best = Long.MAX_VALUE;
+      for (int round = 0; round < 3; round++) {
+        System.arraycopy(input, 0, a, 0, n);
+        long start = System.nanoTime();
+        sort(a, aux, pool, DEFAULT_THRESHOLD);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      pool.shutdown();
+      if (threads == 1) {
+        base = best;
+      }
+      System.out.println(String.format("threads = %2d  %8.1f ms  speedup %.2fx",
+                                       threads, best / 1e6, (double) base / best));
+    }
+  }
+
+  /* 1, 2, 4, ... and finally maxThreads itself */
+  private static int nextThreadCount(int threads, int maxThreads) {
+    if (threads == maxThreads) {
+      return maxThreads + 1;
+    }
+    return Math.min(threads * 2, maxThreads);
+  }
+
+  /**
+   * Sort array a using array aux as buffer, on the common pool with the default threshold.
+   */
+  public static <T extends Comparable<T>> void sort(T[] a, T[] aux) {
+    sort(a, aux, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Sort array a using array aux as buffer, on the given pool.
+   * Subarrays shorter than threshold are sorted sequentially.
+   */
+  public static <T extends Comparable<T>> void sort(T[] a, T[] aux, ForkJoinPool pool, int threshold) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be input array!");
+    }
+    if (aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array mustn't be shorter than input array!");
+    }
+    if (pool == null) {
+      throw new NullPointerException("The pool is null!");
+    }
+    if (threshold < 1) {
+      throw new IllegalArgumentException(String.format("threshold %d must be positive", threshold));
+    }
+
+    final int n = a.length;
+    System.arraycopy(a, 0, aux, 0, n);
+    pool.invoke(new SortTask<>(a, 0, n - 1, aux, threshold));
+  }
+
+  /* Sort a[lo..hi] using aux as buffer; aux[lo..hi] must hold the same elements as a[lo..hi] */
+  private static class SortTask<T extends Comparable<T>> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final T[] a;
+    private final int lo;
+    private final int hi;
+    private final T[] aux;
+    private final int threshold;
+
+    private SortTask(T[] a, int lo, int hi, T[] aux, int threshold) {
+      this.a = a;
+      this.lo = lo;
+      this.hi = hi;
+      this.aux = aux;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo < threshold) {
+        sort(a, lo, hi, aux);
+        return;
+      }
+      int mid = (lo + hi) / 2;
+      invokeAll(new SortTask<>(aux, lo, mid, a, threshold),
+                new SortTask<>(aux, mid + 1, hi, a, threshold));
+      new MergeTask<>(aux, lo, mid, mid + 1, hi, a, lo, threshold).compute();
+    }
+  }
+
+  /* Merge sorted src[lo1..hi1] (left run) and src[lo2..hi2] (right run) into dst[k..] */
+  private static class MergeTask<T extends Comparable<T>> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final T[] src;
+    private final int lo1;
+    private final int hi1;
+    private final int lo2;
+    private final int hi2;
+    private final T[] dst;
+    private final int k;
+    private final int threshold;
+
+    private MergeTask(T[] src, int lo1, int hi1, int lo2, int hi2, T[] dst, int k, int threshold) {
+      this.src = src;
+      this.lo1 = lo1;
+      this.hi1 = hi1;
+      this.lo2 = lo2;
+      this.hi2 = hi2;
+      this.dst = dst;
+      this.k = k;
+      this.threshold = threshold;
+    }
+
+    /*
+     * Split the longer run at its middle element x, binary search x's position in the other run,
+     * drop x into its final slot, then merge the two smaller pairs of runs in parallel.
+     * Equal keys from the right run precede those from the left run on both sides of the split.
+     */
+    @Override
+    protected void compute() {
+      int len1 = hi1 - lo1 + 1;
+      int len2 = hi2 - lo2 + 1;
+      if (len1 + len2 < threshold) {
+        merge(src, lo1, hi1, lo2, hi2, dst, k);
+        return;
+      }
+
+      int m1;
+      int m2;
+      int p;
+      if (len1 >= len2) {
+        m1 = (lo1 + hi1) / 2;
+        // right run elements <= src[m1] go before it
+        m2 = upperBound(src, lo2, hi2, src[m1]);
+        p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m1];
+        invokeAll(new MergeTask<>(src, lo1, m1 - 1, lo2, m2 - 1, dst, k, threshold),
+                  new MergeTask<>(src, m1 + 1, hi1, m2, hi2, dst, p + 1, threshold));
+      } else {
+        m2 = (lo2 + hi2) / 2;
+        // left run elements < src[m2] go before it
+        m1 = lowerBound(src, lo1, hi1, src[m2]);
+        p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m2];
+        invokeAll(new MergeTask<>(src, lo1, m1 - 1, lo2, m2 - 1, dst, k, threshold),
+                  new MergeTask<>(src, m1, hi1, m2 + 1, hi2, dst, p + 1, threshold));
+      }
+    }
+  }
+
+  /* Recursively sort a[lo..hi] using aux as buffer, same recursion as MergeSort's */
+  private static <T extends Comparable<T>> void sort(T[] a, int lo, int hi, T[] aux) {
+    if (lo >= hi) {
+      return;
+    }
+
+    int mid = (lo + hi) / 2;
+    sort(aux, lo, mid, a);
+    sort(aux, mid + 1, hi, a);
+    merge(aux, lo, mid, mid + 1, hi, a, lo);
+  }
+
+  /* Merge sorted src[lo1..hi1] and src[lo2..hi2] into dst[k..] */
+  private static <T extends Comparable<T>> void merge(T[] src, int lo1, int hi1, int lo2, int hi2,
+                                                      T[] dst, int k) {
+    int i = lo1;
+    int j = lo2;
+    while (i <= hi1 && j <= hi2) {
+      if (less(src[i], src[j])) {
+        dst[k++] = src[i++];
+      } else {
+        dst[k++] = src[j++];
+      }
+    }
+    while (i <= hi1) {
+      dst[k++] = src[i++];
+    }
+    while (j <= hi2) {
+      dst[k++] = src[j++];
+    }
+  }
+
+  /* Return the first index in a[lo..hi] whose element is not less than x, or hi + 1 */
+  private static <T extends Comparable<T>> int lowerBound(T[] a, int lo, int hi, T x) {
+    int end = hi + 1;
+    while (lo < end) {
+      int mid = (lo + end) >>> 1;
+      if (less(a[mid], x)) {
+        lo = mid + 1;
+      } else {
+        end = mid;
+      }
+    }
+    return lo;
+  }
+
+  /* Return the first index in a[lo..hi] whose element is greater than x, or hi + 1 */
+  private static <T extends Comparable<T>> int upperBound(T[] a, int lo, int hi, T x) {
+    int end = hi + 1;
+    while (lo < end) {
+      int mid = (lo + end) >>> 1;
+      if (less(x, a[mid])) {
+        end = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /* Helper method for testing if v is less than w */
+  private static <T extends Comparable<T>> boolean less(T v, T w) {
+    return v.compareTo(w) < 0;
+  }
+
+}
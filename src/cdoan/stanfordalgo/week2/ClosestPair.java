@@ -18,6 +18,14 @@ public class ClosestPair {
       this.y = y;
     }
     
+    public int getX() {
+      return x;
+    }
+    
+    public int getY() {
+      return y;
+    }
+    
     public long distanceTo(Point q) {
       if (q == null) {
         throw new NullPointerException("q is null");
@@ -40,6 +48,14 @@ public class ClosestPair {
       this.q = q;
     }
     
+    public Point getP() {
+      return p;
+    }
+    
+    public Point getQ() {
+      return q;
+    }
+    
     public long distance() {
       return p.distanceTo(q);
     }
@@ -62,6 +78,51 @@ public class ClosestPair {
 			  != findNearestPairNaive(points, 0, n - 1).distance()) {
       throw new AssertionError("findNearestPair's implementation is Incorrect!");
     }
+
+    // Struct-of-arrays variant against the naive approach, with coincident points and shared coordinates
+    Random rd = new Random();
+    int[] pair = new int[2];
+    for (int test = 0; test < 300; test++) {
+      final int size = 2 + rd.nextInt(2000);
+      final int bound = test % 3 == 0 ? 50 : 1 << 30;
+      int[] xs = new int[size];
+      int[] ys = new int[size];
+      for (int i = 0; i < size; i++) {
+        xs[i] = rd.nextInt(bound) - (test % 2 == 0 ? 0 : bound / 2);
+        ys[i] = test % 5 == 0 ? 7 : rd.nextInt(bound) - bound / 2;
+      }
+      long expected = findNearestPairNaive(xs, ys);
+      long actual = findNearestPair(xs, ys, pair);
+      if (actual != expected || pair[0] == pair[1] || squaredDistance(xs, ys, pair[0], pair[1]) != actual) {
+        throw new AssertionError(String.format("findNearestPair(xs, ys) = %d with pair (%d, %d); expected %d",
+                                               actual, pair[0], pair[1], expected));
+      }
+    }
+
+    // Time both variants on the same points, whose x and y coordinates are distinct as findNearestPair(Point[]) needs
+    final int bigN = 1_000_000;
+    int[] xs = new int[bigN];
+    int[] ys = new int[bigN];
+    for (int i = 0; i < bigN; i++) {
+      xs[i] = 1000 * i + rd.nextInt(1000);
+      ys[i] = 1000 * i + rd.nextInt(1000);
+    }
+    Point[] bigPoints = new Point[bigN];
+    for (int i = bigN - 1; i >= 0; i--) {
+      int j = rd.nextInt(i + 1);
+      int y = ys[i];
+      ys[i] = ys[j];
+      ys[j] = y;
+      bigPoints[i] = new Point(xs[i], ys[i]);
+    }
+    long start = System.nanoTime();
+    findNearestPair(bigPoints);
+    long pointsTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    findNearestPair(xs, ys, pair);
+    long arraysTime = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  findNearestPair Point[] %.1f ms  int[] xs, ys %.1f ms",
+                                     bigN, pointsTime / 1e6, arraysTime / 1e6));
   }
   
   /* Utility method for generating test data */
@@ -180,8 +241,161 @@ public class ClosestPair {
     return bestP != null ? new Pair(bestP, bestQ) : null;
   }
   
+  /**
+   * Find a closest pair among the points (xs[i], ys[i]), stored as a struct of arrays; xs and ys are left unchanged.
+   * The indices of the two points are written into pair[0] and pair[1], and their squared distance is returned.
+   * Points may share coordinates. Squared distances must fit in a long, which holds when the coordinates
+   * span less than 2^31 on each axis. Only three index arrays of n ints and one of n longs are allocated,
+   * however deep the recursion goes.
+   */
+  public static long findNearestPair(int[] xs, int[] ys, int[] pair) {
+    if (xs == null || ys == null || pair == null) {
+      throw new NullPointerException("xs, ys or pair is null");
+    }
+    final int n = xs.length;
+    if (ys.length != n || n < 2) {
+      throw new IllegalArgumentException("xs and ys must have the same length of at least 2");
+    }
+    if (pair.length < 2) {
+      throw new IllegalArgumentException("pair must have a length of at least 2");
+    }
+
+    int[] byX = sortIndicesByX(xs);
+    int[] byY = byX.clone();
+    int[] aux = new int[n];
+    return findNearestPair(xs, ys, byX, byY, aux, 0, n, Long.MAX_VALUE, pair);
+  }
+
+  /* Return the indices 0..n-1 sorted by xs, ties broken by index, via a primitive sort of (x, index) keys */
+  static int[] sortIndicesByX(int[] xs) {
+    final int n = xs.length;
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = ((long) xs[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    int[] byX = new int[n];
+    for (int i = 0; i < n; i++) {
+      byX[i] = (int) keys[i];
+    }
+    return byX;
+  }
+
+  /*
+   * Find a closest pair among the points byX[lo..hi-1] and return its squared distance if it is less than best,
+   * writing its indices into pair; otherwise return best and leave pair alone.
+   * On entry byY[lo..hi-1] holds the same indices as byX[lo..hi-1]; on return they are sorted by ys,
+   * as a merge sort would leave them. aux[lo..hi-1] is scratch for the merge and then for the strip.
+   */
+  static long findNearestPair(int[] xs, int[] ys, int[] byX, int[] byY, int[] aux,
+                              int lo, int hi, long best, int[] pair) {
+    // Base case
+    if (hi - lo <= 3) {
+      for (int i = lo; i < hi; i++) {
+        for (int j = i + 1; j < hi; j++) {
+          long d = squaredDistance(xs, ys, byX[i], byX[j]);
+          if (d < best) {
+            best = d;
+            pair[0] = byX[i];
+            pair[1] = byX[j];
+          }
+        }
+      }
+      insertionSortByY(ys, byY, lo, hi);
+      return best;
+    }
+
+    // Recursively find closest pair in Left half and Right half, then merge their y orders
+    final int mid = (lo + hi) >>> 1;
+    final long centerX = xs[byX[mid]];
+    best = findNearestPair(xs, ys, byX, byY, aux, lo, mid, best, pair);
+    best = findNearestPair(xs, ys, byX, byY, aux, mid, hi, best, pair);
+    mergeByY(ys, byY, aux, lo, mid, hi);
+    return closestSplitPair(xs, ys, byY, aux, lo, hi, centerX, best, pair);
+  }
+
+  /*
+   * Find a split closest pair among the y-sorted points byY[lo..hi-1] whose distance to the
+   * vertical line 'x = centerX' is less than sqrt(best), using aux[lo..hi-1] for the strip.
+   * Return its squared distance if less than best, writing its indices into pair; otherwise return best.
+   */
+  static long closestSplitPair(int[] xs, int[] ys, int[] byY, int[] aux, int lo, int hi,
+                               long centerX, long best, int[] pair) {
+    int stripEnd = lo;
+    for (int i = lo; i < hi; i++) {
+      long dx = xs[byY[i]] - centerX;
+      if (dx * dx < best) {
+        aux[stripEnd++] = byY[i];
+      }
+    }
+    for (int i = lo; i < stripEnd; i++) {
+      int p = aux[i];
+      for (int j = i + 1; j < stripEnd; j++) {
+        int q = aux[j];
+        long dy = (long) ys[q] - ys[p];
+        // Points further down the strip are at least dy away
+        if (dy * dy >= best) {
+          break;
+        }
+        long d = squaredDistance(xs, ys, p, q);
+        if (d < best) {
+          best = d;
+          pair[0] = p;
+          pair[1] = q;
+        }
+      }
+    }
+    return best;
+  }
+
+  /* Merge byY[lo..mid-1] and byY[mid..hi-1], both sorted by ys, through aux */
+  static void mergeByY(int[] ys, int[] byY, int[] aux, int lo, int mid, int hi) {
+    System.arraycopy(byY, lo, aux, lo, hi - lo);
+    int i = lo;
+    int j = mid;
+    for (int k = lo; k < hi; k++) {
+      if (i == mid) {
+        byY[k] = aux[j++];
+      } else if (j == hi || ys[aux[i]] <= ys[aux[j]]) {
+        byY[k] = aux[i++];
+      } else {
+        byY[k] = aux[j++];
+      }
+    }
+  }
+
+  /* Sort byY[lo..hi-1] by ys using InsertionSort */
+  private static void insertionSortByY(int[] ys, int[] byY, int lo, int hi) {
+    for (int i = lo + 1; i < hi; i++) {
+      int p = byY[i];
+      int pos = i;
+      for (; pos > lo && ys[p] < ys[byY[pos - 1]]; pos--) {
+        byY[pos] = byY[pos - 1];
+      }
+      byY[pos] = p;
+    }
+  }
+
+  /* Squared distance between the points of indices p and q */
+  static long squaredDistance(int[] xs, int[] ys, int p, int q) {
+    long dx = (long) xs[q] - xs[p];
+    long dy = (long) ys[q] - ys[p];
+    return dx * dx + dy * dy;
+  }
+
+  /* Find the squared distance of a closest pair using Naive approach */
+  private static long findNearestPairNaive(int[] xs, int[] ys) {
+    long bestDist = Long.MAX_VALUE;
+    for (int i = 0; i < xs.length; i++) {
+      for (int j = i + 1; j < xs.length; j++) {
+        bestDist = Math.min(bestDist, squaredDistance(xs, ys, i, j));
+      }
+    }
+    return bestDist;
+  }
+
   /* Find a closest pair in points using Naive approach */
-  private static Pair findNearestPairNaive(Point[] points, int lo, int hi) {
+  static Pair findNearestPairNaive(Point[] points, int lo, int hi) {
     Point bestP = null;
     Point bestQ = null;
     long bestDist = Long.MAX_VALUE;
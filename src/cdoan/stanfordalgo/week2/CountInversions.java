@@ -3,6 +3,7 @@ package cdoan.stanfordalgo.week2;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Scanner;
 
@@ -18,6 +19,44 @@ public class CountInversions {
       if ((countInversionsNaive(a) != countInversions(a, new Integer[a.length])) || !isSorted(a)) {
         throw new AssertionError("countInversions is Not correct!");
       }
+      int[] b = randomIntArr(a.length);
+      if (countInversions(b.clone(), new int[b.length]) != countInversionsNaive(box(b))) {
+        throw new AssertionError("countInversions on int[] is Not correct!");
+      }
+    }
+    
+    // Score random rankings against a random reference ranking with a single scorer
+    Random random = new Random();
+    final int n = 500;
+    int[] reference = randomPermutation(n, random);
+    int[] positionInReference = new int[n];
+    for (int i = 0; i < n; i++) {
+      positionInReference[reference[i]] = i;
+    }
+    RankingScorer scorer = new RankingScorer(reference);
+    for (int test = 0; test < 100; ++test) {
+      int[] ranking = randomPermutation(n, random);
+      Integer[] relative = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        relative[i] = positionInReference[ranking[i]];
+      }
+      if (scorer.inversions(ranking) != countInversionsNaive(relative)) {
+        throw new AssertionError("RankingScorer is Not correct!");
+      }
+    }
+    // Rankings with an id out of range or repeated are rejected, and the scorer still works after them
+    int[] outOfRange = randomPermutation(n, random);
+    outOfRange[random.nextInt(n)] = random.nextBoolean() ? -1 : n;
+    int[] repeated = randomPermutation(n, random);
+    repeated[0] = repeated[1 + random.nextInt(n - 1)];
+    for (int[] ranking : new int[][] {outOfRange, repeated}) {
+      try {
+        scorer.inversions(ranking);
+        throw new AssertionError("RankingScorer accepts a ranking that is not a permutation!");
+      } catch (IllegalArgumentException expected) {}
+    }
+    if (scorer.inversions(reference) != 0 || scorer.kendallTau(reference) != 1.0) {
+      throw new AssertionError("RankingScorer is Not correct after a rejected ranking!");
     }
   }
 
@@ -32,8 +71,41 @@ public class CountInversions {
     return result;
   }
   
+  /* Utility method for preparing test data */
+  private static int[] randomIntArr(int len) {
+    Random random = new Random();
+    int[] result = new int[len];
+    for (int i = 0; i < len; i++) {
+      result[i] = random.nextInt(1200) - 600;
+    }
+    return result;
+  }
+  
+  /* Utility method for preparing test data: uniformly random permutation of 0..n-1 */
+  private static int[] randomPermutation(int n, Random random) {
+    int[] p = new int[n];
+    for (int i = 0; i < n; i++) {
+      p[i] = i;
+    }
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = p[i];
+      p[i] = p[j];
+      p[j] = tmp;
+    }
+    return p;
+  }
+  
+  private static Integer[] box(int[] a) {
+    Integer[] res = new Integer[a.length];
+    for (int i = 0; i < a.length; i++) {
+      res[i] = a[i];
+    }
+    return res;
+  }
+  
   /* Brute-force O(n^2) running time */
-  private static <T extends Comparable<T>> long countInversionsNaive(T[] a) {
+  static <T extends Comparable<T>> long countInversionsNaive(T[] a) {
     long count = 0;
     final int n = a.length;
     for (int i = 0; i < n - 1; i++) {
@@ -54,6 +126,36 @@ public class CountInversions {
     return countInversions(a, 0, a.length - 1, aux);
   }
   
+  /**
+   * Divide-and-Conquer O(nlogn) running time on a int array; a ends up sorted.
+   * No allocation happens inside the recursion.
+   */
+  public static long countInversions(int[] a, int[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a || aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array must be distinct from and at least as long as input array!");
+    }
+    System.arraycopy(a, 0, aux, 0, a.length);
+    return countInversions(a, 0, a.length - 1, aux);
+  }
+
+  /**
+   * Divide-and-Conquer O(nlogn) running time on a long array; a ends up sorted.
+   * No allocation happens inside the recursion.
+   */
+  public static long countInversions(long[] a, long[] aux) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a || aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array must be distinct from and at least as long as input array!");
+    }
+    System.arraycopy(a, 0, aux, 0, a.length);
+    return countInversions(a, 0, a.length - 1, aux);
+  }
+  
   /* Count number of inversions in a[lo..hi] (inclusive) using aux as buffer */
   private static <T extends Comparable<T>> long countInversions(T[] a, int lo, int hi, T[] aux) {
     // Base case
@@ -99,6 +201,149 @@ public class CountInversions {
     return splitInversions;
   }  
   
+  /* Count number of inversions in a[lo..hi] (inclusive) using aux as buffer */
+  static long countInversions(int[] a, int lo, int hi, int[] aux) {
+    if (lo >= hi) {
+      return 0;
+    }
+    int mid = (lo + hi) / 2;
+    long leftCount = countInversions(aux, lo, mid, a);
+    long rightCount = countInversions(aux, mid + 1, hi, a);
+    return leftCount + rightCount + cntSplitInvs(aux, lo, mid, hi, a);
+  }
+  
+  /* Merge aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] and count split inversions */
+  private static long cntSplitInvs(int[] aux, int lo, int mid, int hi, int[] a) {
+    long splitInversions = 0;
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[j] < aux[i]) {
+        a[k++] = aux[j++];
+        splitInversions += (mid - i + 1);
+      } else {
+        a[k++] = aux[i++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+    return splitInversions;
+  }
+
+  /* Count number of inversions in a[lo..hi] (inclusive) using aux as buffer */
+  static long countInversions(long[] a, int lo, int hi, long[] aux) {
+    if (lo >= hi) {
+      return 0;
+    }
+    int mid = (lo + hi) / 2;
+    long leftCount = countInversions(aux, lo, mid, a);
+    long rightCount = countInversions(aux, mid + 1, hi, a);
+    return leftCount + rightCount + cntSplitInvs(aux, lo, mid, hi, a);
+  }
+  
+  /* Merge aux[lo..mid] and aux[mid+1..hi] into a[lo..hi] and count split inversions */
+  private static long cntSplitInvs(long[] aux, int lo, int mid, int hi, long[] a) {
+    long splitInversions = 0;
+    int i = lo;
+    int j = mid + 1;
+    int k = lo;
+    while (i <= mid && j <= hi) {
+      if (aux[j] < aux[i]) {
+        a[k++] = aux[j++];
+        splitInversions += (mid - i + 1);
+      } else {
+        a[k++] = aux[i++];
+      }
+    }
+    while (i <= mid) {
+      a[k++] = aux[i++];
+    }
+    while (j <= hi) {
+      a[k++] = aux[j++];
+    }
+    return splitInversions;
+  }
+
+  /**
+   * Counts inversions of many rankings against one reference ranking (the Kendall tau distance),
+   * reusing the same scratch buffers for every ranking.
+   * A ranking is a permutation of the item ids 0..n-1, listed from best to worst.
+   * Not thread-safe: use one instance per thread.
+   */
+  public static class RankingScorer {
+    private final int[] positionInReference;
+    private final int[] seq;
+    private final int[] aux;
+    
+    public RankingScorer(int[] reference) {
+      if (reference == null) {
+        throw new NullPointerException("The reference ranking is null!");
+      }
+      final int n = reference.length;
+      positionInReference = new int[n];
+      Arrays.fill(positionInReference, -1);
+      for (int i = 0; i < n; i++) {
+        int item = reference[i];
+        if (item < 0 || item >= n || positionInReference[item] != -1) {
+          throw new IllegalArgumentException("The reference ranking is not a permutation of 0.." + (n - 1));
+        }
+        positionInReference[item] = i;
+      }
+      seq = new int[n];
+      aux = new int[n];
+    }
+    
+    /**
+     * Number of item pairs ordered differently by ranking and by the reference.
+     * ranking must be a permutation of 0..n-1, as the reference.
+     */
+    public long inversions(int[] ranking) {
+      final int n = seq.length;
+      if (ranking == null || ranking.length != n) {
+        throw new IllegalArgumentException("The ranking must have " + n + " items");
+      }
+      // aux marks the items seen so far, before serving as merge buffer
+      Arrays.fill(aux, -1);
+      for (int i = 0; i < n; i++) {
+        int item = ranking[i];
+        if (item < 0 || item >= n || aux[item] != -1) {
+          throw new IllegalArgumentException("The ranking is not a permutation of 0.." + (n - 1));
+        }
+        aux[item] = i;
+        seq[i] = positionInReference[item];
+      }
+      System.arraycopy(seq, 0, aux, 0, n);
+      return countInversions(seq, 0, n - 1, aux);
+    }
+    
+    /**
+     * Inversion counts of each of the given rankings.
+     */
+    public long[] inversions(int[][] rankings) {
+      long[] res = new long[rankings.length];
+      for (int r = 0; r < rankings.length; r++) {
+        res[r] = inversions(rankings[r]);
+      }
+      return res;
+    }
+    
+    /**
+     * Kendall tau rank correlation in [-1, 1]: 1 for the reference order, -1 for its reverse.
+     */
+    public double kendallTau(int[] ranking) {
+      final long n = seq.length;
+      if (n < 2) {
+        return 1.0;
+      }
+      return 1.0 - 4.0 * inversions(ranking) / (n * (n - 1));
+    }
+  }
+  
   /* Helper method for testing if v is less than w */
   private static <T extends Comparable<T>> boolean less(T v, T w) {
     return v.compareTo(w) < 0;
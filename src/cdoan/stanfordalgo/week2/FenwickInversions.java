@@ -0,0 +1,193 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Counts inversions with a Fenwick tree (binary indexed tree) of key frequencies
+ * instead of merge sort. Scanning left to right, the inversions ending at a[i]
+ * are the previously seen elements greater than a[i], which the tree answers in O(logn).
+ */
+public class FenwickInversions {
+
+  /**
+   * Check countInversions and StreamingCounter against CountInversions, then time all the engines.
+   * Usage: java FenwickInversions [n]
+   */
+  public static void main(String[] args) {
+    Random random = new Random();
+    for (int test = 0; test < 300; ++test) {
+      int len = random.nextInt(3000);
+      int range = 1 + random.nextInt(test % 2 == 0 ? 50 : 100000);
+      int[] a = new int[len];
+      StreamingCounter counter = new StreamingCounter(-range, range);
+      long streamed = 0;
+      for (int i = 0; i < len; i++) {
+        a[i] = random.nextInt(2 * range + 1) - range;
+        streamed = counter.add(a[i]);
+      }
+      long expected = CountInversions.countInversions(a.clone(), new int[len]);
+      if (countInversions(a) != expected || streamed != expected || counter.inversions() != expected) {
+        throw new AssertionError("FenwickInversions is Not correct!");
+      }
+    }
+
+    int n = 5_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    int[] input = new int[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = random.nextInt();
+    }
+    final int smallN = 20_000;
+    Integer[] small = new Integer[smallN];
+    for (int i = 0; i < smallN; i++) {
+      small[i] = input[i];
+    }
+
+    long start = System.nanoTime();
+    long fenwick = countInversions(input);
+    long fenwickTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long mergeInt = CountInversions.countInversions(input.clone(), new int[n]);
+    long mergeIntTime = System.nanoTime() - start;
+    Integer[] boxed = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      boxed[i] = input[i];
+    }
+    start = System.nanoTime();
+    long mergeBoxed = CountInversions.countInversions(boxed, new Integer[n]);
+    long mergeBoxedTime = System.nanoTime() - start;
+    if (fenwick != mergeInt || fenwick != mergeBoxed) {
+      throw new AssertionError("FenwickInversions is Not correct!");
+    }
+    System.out.println(String.format("n = %d  Fenwick %.1f ms  merge int[] %.1f ms  merge Integer[] %.1f ms",
+                                     n, fenwickTime / 1e6, mergeIntTime / 1e6, mergeBoxedTime / 1e6));
+
+    int[] smallInts = Arrays.copyOf(input, smallN);
+    start = System.nanoTime();
+    fenwick = countInversions(smallInts);
+    fenwickTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long naive = CountInversions.countInversionsNaive(small);
+    long naiveTime = System.nanoTime() - start;
+    if (fenwick != naive) {
+      throw new AssertionError("FenwickInversions is Not correct!");
+    }
+    System.out.println(String.format("n = %d  Fenwick %.1f ms  naive %.1f ms",
+                                     smallN, fenwickTime / 1e6, naiveTime / 1e6));
+  }
+
+  /**
+   * Count inversions of a in O(nlogn) time; a is left unchanged.
+   */
+  public static long countInversions(int[] a) {
+    if (a == null) {
+      throw new NullPointerException("The input array is null!");
+    }
+
+    // Coordinate compression: rank[i] = 1 + number of distinct keys less than a[i]
+    final int n = a.length;
+    int[] keys = a.clone();
+    Arrays.sort(keys);
+    int distinct = 0;
+    for (int i = 0; i < n; i++) {
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        keys[distinct++] = keys[i];
+      }
+    }
+
+    long[] tree = new long[distinct + 1];
+    long inversions = 0;
+    for (int i = 0; i < n; i++) {
+      int rank = Arrays.binarySearch(keys, 0, distinct, a[i]) + 1;
+      // i elements seen so far, prefixSum(rank) of which are <= a[i]
+      inversions += i - prefixSum(tree, rank);
+      increment(tree, rank);
+    }
+    return inversions;
+  }
+
+  /* Sum of the frequencies of ranks 1..rank */
+  private static long prefixSum(long[] tree, int rank) {
+    long sum = 0;
+    for (; rank > 0; rank -= rank & -rank) {
+      sum += tree[rank];
+    }
+    return sum;
+  }
+
+  /* Add 1 to the frequency of rank */
+  private static void increment(long[] tree, int rank) {
+    for (; rank < tree.length; rank += rank & -rank) {
+      tree[rank]++;
+    }
+  }
+
+
+  /**
+   * Keeps the inversion count of a stream of keys in [minKey, maxKey] as they are appended,
+   * in O(log(maxKey - minKey)) time per key and without ever re-sorting.
+   * Unbounded keys (e.g. latencies) must be bucketed into such a range first.
+   */
+  public static class StreamingCounter {
+    private final int minKey;
+    private final int maxKey;
+    private final long[] tree;
+    private long size;
+    private long inversions;
+
+    public StreamingCounter(int minKey, int maxKey) {
+      if (minKey > maxKey) {
+        throw new IllegalArgumentException(String.format("minKey %d > maxKey %d", minKey, maxKey));
+      }
+      long range = (long) maxKey - minKey + 1;
+      if (range > Integer.MAX_VALUE - 1) {
+        throw new IllegalArgumentException(String.format("key range %d..%d is too wide", minKey, maxKey));
+      }
+      this.minKey = minKey;
+      this.maxKey = maxKey;
+      this.tree = new long[(int) range + 1];
+    }
+
+    /**
+     * Append key to the stream and return the updated inversion count.
+     */
+    public long add(int key) {
+      if (key < minKey || key > maxKey) {
+        throw new IllegalArgumentException(String.format("key %d out of range %d..%d", key, minKey, maxKey));
+      }
+      int rank = key - minKey + 1;
+      inversions += size - prefixSum(tree, rank);
+      increment(tree, rank);
+      size++;
+      return inversions;
+    }
+
+    /**
+     * Number of pairs of keys appended out of order so far.
+     */
+    public long inversions() {
+      return inversions;
+    }
+
+    /**
+     * Number of keys appended so far.
+     */
+    public long size() {
+      return size;
+    }
+
+    /**
+     * Inversions relative to the maximum size*(size-1)/2: 0 for an ascending stream, 1 for a strictly descending one.
+     */
+    public double disorder() {
+      return size < 2 ? 0.0 : 2.0 * inversions / ((double) size * (size - 1));
+    }
+  }
+
+}
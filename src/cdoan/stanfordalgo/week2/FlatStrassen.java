@@ -0,0 +1,303 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Matrix multiplication on flat row-major long arrays: element (i, j) of an n x n matrix M is M[i*n + j].
+ * The kernel is the cubic algo in i-k-j loop order over TILE x TILE tiles, so the innermost loop walks
+ * rows of both Y and Z and every tile is reused while it is in cache. Strassen recurs on quadrants,
+ * which are views of the same arrays at an offset and a row stride, and hands off to the kernel once
+ * the dimension is at most the cutoff or odd. The temporaries of all recursion levels are carved out
+ * of one workspace array allocated once per call.
+ * Like the long[][] engines, arithmetic wraps around modulo 2^64.
+ */
+public class FlatStrassen {
+
+  /** Dimensions at most this are multiplied by the tiled kernel instead of recurring. */
+  public static final int DEFAULT_CUTOFF = 128;
+
+  /* Side of the square tiles of the kernel: 3 tiles of longs take 96KB */
+  static final int TILE = 64;
+
+  /**
+   * Test against MatrixMultiplicationStrassenAlgo, then time it against the long[][] engines.
+   * Usage: java FlatStrassen [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 50; test++) {
+      final int n = test < 10 ? 1 << rd.nextInt(8) : 1 + rd.nextInt(200);
+      long[][] X = randSqrMatrix(n, rd);
+      long[][] Y = randSqrMatrix(n, rd);
+      long[][] expected = MatrixMultiplicationStrassenAlgo.cubicAlgo(X, Y);
+      long[] z = multiply(toFlat(X), toFlat(Y), n, 1 + rd.nextInt(64));
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(fromFlat(z, n), expected)) {
+        throw new AssertionError(String.format("FlatStrassen is Incorrect for n = %d!", n));
+      }
+    }
+
+    int n = 512;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    long[][] X = randSqrMatrix(n, rd);
+    long[][] Y = randSqrMatrix(n, rd);
+    long[] x = toFlat(X);
+    long[] y = toFlat(Y);
+    long start = System.nanoTime();
+    long[][] expected = MatrixMultiplicationStrassenAlgo.cubicAlgo(X, Y);
+    System.out.println(String.format("n = %d  cubicAlgo long[][] %.1f ms", n, (System.nanoTime() - start) / 1e6));
+    if ((n & (n - 1)) == 0) {
+      start = System.nanoTime();
+      MatrixMultiplicationStrassenAlgo.strassen(X, Y);
+      System.out.println(String.format("n = %d  strassen long[][] %.1f ms", n, (System.nanoTime() - start) / 1e6));
+    }
+    long[] z = new long[n * n];
+    start = System.nanoTime();
+    multiplyTiled(x, y, z, n);
+    System.out.println(String.format("n = %d  tiled i-k-j long[] %.1f ms", n, (System.nanoTime() - start) / 1e6));
+    for (int cutoff = 32; cutoff <= n; cutoff *= 2) {
+      start = System.nanoTime();
+      z = multiply(x, y, n, cutoff);
+      long runtime = System.nanoTime() - start;
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(fromFlat(z, n), expected)) {
+        throw new AssertionError("FlatStrassen is Incorrect!");
+      }
+      System.out.println(String.format("n = %d  Strassen long[] cutoff %4d %.1f ms", n, cutoff, runtime / 1e6));
+    }
+  }
+
+  /* Utility method to generate a square matrix of random integers */
+  private static long[][] randSqrMatrix(int n, Random rd) {
+    long[][] M = new long[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        M[i][j] = rd.nextInt();
+      }
+    }
+    return M;
+  }
+
+  /**
+   * Copy square matrix M into a flat row-major array.
+   */
+  public static long[] toFlat(long[][] M) {
+    final int n = M.length;
+    long[] res = new long[n * n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(M[i], 0, res, i * n, n);
+    }
+    return res;
+  }
+
+  /**
+   * Copy the n x n flat row-major matrix m into a long[][].
+   */
+  public static long[][] fromFlat(long[] m, int n) {
+    long[][] res = new long[n][n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(m, i * n, res[i], 0, n);
+    }
+    return res;
+  }
+
+  /**
+   * Return x*y for n x n matrices with the default cutoff.
+   */
+  public static long[] multiply(long[] x, long[] y, int n) {
+    return multiply(x, y, n, DEFAULT_CUTOFF);
+  }
+
+  /**
+   * Return x*y for n x n matrices; dimensions at most cutoff are handed to the tiled kernel.
+   */
+  public static long[] multiply(long[] x, long[] y, int n, int cutoff) {
+    checkArgs(x, y, n);
+    if (cutoff < 1) {
+      throw new IllegalArgumentException(String.format("cutoff %d must be positive", cutoff));
+    }
+    long[] z = new long[n * n];
+    long[] work = new long[workspaceSize(n, cutoff)];
+    strassen(x, 0, n, y, 0, n, z, 0, n, n, work, 0, cutoff);
+    return z;
+  }
+
+  /**
+   * Compute z = x*y for n x n matrices with the tiled kernel alone.
+   */
+  public static void multiplyTiled(long[] x, long[] y, long[] z, int n) {
+    checkArgs(x, y, n);
+    if (z == null || z.length < n * n) {
+      throw new IllegalArgumentException("z must hold n*n elements");
+    }
+    fill(z, 0, n, n, 0);
+    mulAdd(x, 0, n, y, 0, n, z, 0, n, n);
+  }
+
+  private static void checkArgs(long[] x, long[] y, int n) {
+    if (x == null || y == null) {
+      throw new NullPointerException("x or y is null");
+    }
+    if (n < 0 || x.length < (long) n * n || y.length < (long) n * n) {
+      throw new IllegalArgumentException(String.format("x and y must hold %d x %d elements", n, n));
+    }
+  }
+
+  /* Whether Strassen recurs on dimension n rather than handing it to the kernel */
+  static boolean recurs(int n, int cutoff) {
+    return n > cutoff && n % 2 == 0;
+  }
+
+  /* Number of longs of workspace the recursion on dimension n needs: 3 blocks of (n/2)^2 per level */
+  static int workspaceSize(int n, int cutoff) {
+    long size = 0;
+    for (; recurs(n, cutoff); n /= 2) {
+      size += 3L * (n / 2) * (n / 2);
+    }
+    return (int) size;
+  }
+
+  /*
+   * Compute z = x*y for the n x n views x[xo + i*xs + j], y[yo + i*ys + j] and z[zo + i*zs + j],
+   * using work[wo..] as workspace. With quadrants X = [A B; C D] and Y = [E F; G H]:
+   *   P1 = A(F - H), P2 = (A + B)H, P3 = (C + D)E, P4 = D(G - E),
+   *   P5 = (A + D)(E + H), P6 = (B - D)(G + H), P7 = (A - C)(E + F),
+   *   Z = [P5 + P4 - P2 + P6, P1 + P2; P3 + P4, P1 + P5 - P3 - P7].
+   * Each product goes into a scratch block P and is then added into the quadrants of Z that use it.
+   */
+  static void strassen(long[] x, int xo, int xs, long[] y, int yo, int ys, long[] z, int zo, int zs, int n,
+                       long[] work, int wo, int cutoff) {
+    if (!recurs(n, cutoff)) {
+      fill(z, zo, zs, n, 0);
+      mulAdd(x, xo, xs, y, yo, ys, z, zo, zs, n);
+      return;
+    }
+
+    final int h = n / 2;
+    final int a = xo;
+    final int b = xo + h;
+    final int c = xo + h * xs;
+    final int d = c + h;
+    final int e = yo;
+    final int f = yo + h;
+    final int g = yo + h * ys;
+    final int hh = g + h;
+    final int z11 = zo;
+    final int z12 = zo + h;
+    final int z21 = zo + h * zs;
+    final int z22 = z21 + h;
+    // Scratch blocks S, T and P are h x h with row stride h; deeper levels use what follows them
+    final int s = wo;
+    final int t = wo + h * h;
+    final int p = t + h * h;
+    final int next = p + h * h;
+
+    // P1 = A(F - H): Z12 = P1, Z22 = P1
+    combine(y, f, ys, y, hh, ys, -1, work, t, h, h);
+    strassen(x, a, xs, work, t, h, work, p, h, h, work, next, cutoff);
+    copy(work, p, h, z, z12, zs, h);
+    copy(work, p, h, z, z22, zs, h);
+    // P2 = (A + B)H: Z11 = -P2, Z12 += P2
+    combine(x, a, xs, x, b, xs, 1, work, s, h, h);
+    strassen(work, s, h, y, hh, ys, work, p, h, h, work, next, cutoff);
+    fill(z, z11, zs, h, 0);
+    addInto(work, p, h, -1, z, z11, zs, h);
+    addInto(work, p, h, 1, z, z12, zs, h);
+    // P3 = (C + D)E: Z21 = P3, Z22 -= P3
+    combine(x, c, xs, x, d, xs, 1, work, s, h, h);
+    strassen(work, s, h, y, e, ys, work, p, h, h, work, next, cutoff);
+    copy(work, p, h, z, z21, zs, h);
+    addInto(work, p, h, -1, z, z22, zs, h);
+    // P4 = D(G - E): Z11 += P4, Z21 += P4
+    combine(y, g, ys, y, e, ys, -1, work, t, h, h);
+    strassen(x, d, xs, work, t, h, work, p, h, h, work, next, cutoff);
+    addInto(work, p, h, 1, z, z11, zs, h);
+    addInto(work, p, h, 1, z, z21, zs, h);
+    // P5 = (A + D)(E + H): Z11 += P5, Z22 += P5
+    combine(x, a, xs, x, d, xs, 1, work, s, h, h);
+    combine(y, e, ys, y, hh, ys, 1, work, t, h, h);
+    strassen(work, s, h, work, t, h, work, p, h, h, work, next, cutoff);
+    addInto(work, p, h, 1, z, z11, zs, h);
+    addInto(work, p, h, 1, z, z22, zs, h);
+    // P6 = (B - D)(G + H): Z11 += P6
+    combine(x, b, xs, x, d, xs, -1, work, s, h, h);
+    combine(y, g, ys, y, hh, ys, 1, work, t, h, h);
+    strassen(work, s, h, work, t, h, work, p, h, h, work, next, cutoff);
+    addInto(work, p, h, 1, z, z11, zs, h);
+    // P7 = (A - C)(E + F): Z22 -= P7
+    combine(x, a, xs, x, c, xs, -1, work, s, h, h);
+    combine(y, e, ys, y, f, ys, 1, work, t, h, h);
+    strassen(work, s, h, work, t, h, work, p, h, h, work, next, cutoff);
+    addInto(work, p, h, -1, z, z22, zs, h);
+  }
+
+  /*
+   * Tiled kernel: z += x*y for n x n views. Within a tile the loops run in i-k-j order,
+   * so the innermost loop streams through a row of y and a row of z.
+   */
+  static void mulAdd(long[] x, int xo, int xs, long[] y, int yo, int ys, long[] z, int zo, int zs, int n) {
+    for (int ii = 0; ii < n; ii += TILE) {
+      final int iEnd = Math.min(ii + TILE, n);
+      for (int kk = 0; kk < n; kk += TILE) {
+        final int kEnd = Math.min(kk + TILE, n);
+        for (int jj = 0; jj < n; jj += TILE) {
+          final int jEnd = Math.min(jj + TILE, n);
+          for (int i = ii; i < iEnd; i++) {
+            final int xRow = xo + i * xs;
+            final int zRow = zo + i * zs;
+            for (int k = kk; k < kEnd; k++) {
+              final long xik = x[xRow + k];
+              final int yRow = yo + k * ys;
+              for (int j = jj; j < jEnd; j++) {
+                z[zRow + j] += xik * y[yRow + j];
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /* dst = a + sign*b for n x n views */
+  static void combine(long[] a, int ao, int as, long[] b, int bo, int bs, long sign,
+                      long[] dst, int dOff, int ds, int n) {
+    for (int i = 0; i < n; i++) {
+      final int aRow = ao + i * as;
+      final int bRow = bo + i * bs;
+      final int dRow = dOff + i * ds;
+      for (int j = 0; j < n; j++) {
+        dst[dRow + j] = a[aRow + j] + sign * b[bRow + j];
+      }
+    }
+  }
+
+  /* dst += sign*src for n x n views */
+  static void addInto(long[] src, int so, int ss, long sign, long[] dst, int dOff, int ds, int n) {
+    for (int i = 0; i < n; i++) {
+      final int sRow = so + i * ss;
+      final int dRow = dOff + i * ds;
+      for (int j = 0; j < n; j++) {
+        dst[dRow + j] += sign * src[sRow + j];
+      }
+    }
+  }
+
+  /* dst = src for n x n views */
+  static void copy(long[] src, int so, int ss, long[] dst, int dOff, int ds, int n) {
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(src, so + i * ss, dst, dOff + i * ds, n);
+    }
+  }
+
+  /* Set every element of the n x n view m[mo + i*ms + j] to v */
+  static void fill(long[] m, int mo, int ms, int n, long v) {
+    for (int i = 0; i < n; i++) {
+      Arrays.fill(m, mo + i * ms, mo + i * ms + n, v);
+    }
+  }
+
+}
@@ -0,0 +1,432 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import cdoan.stanfordalgo.week2.ClosestPair.Pair;
+import cdoan.stanfordalgo.week2.ClosestPair.Point;
+
+
+/**
+ * Uniform grid hashing over ClosestPair.Point. Points are bucketed by the square cell of a given side
+ * that contains them, and cells are found through an open addressing table keyed by cell coordinates,
+ * so only non-empty cells take memory. Two points at distance at most r lie in the same or in adjacent
+ * cells of side r, which gives radius joins in O(n + output) time for points that are not too clustered,
+ * and an expected O(n) closest pair by the Khuller-Matias sieve.
+ * Coordinates must span less than 2^31 on each axis, as for ClosestPair.findNearestPair(xs, ys, pair).
+ */
+public class GridHash {
+
+  /* Neighbor cells that are visited from a cell, so that every pair of adjacent cells is visited once */
+  private static final int[] FORWARD_DX = {1, 1, 1, 0};
+  private static final int[] FORWARD_DY = {-1, 0, 1, 1};
+
+  /*
+   * The largest radius whose square fits in a long: coordinates span less than 2^31 on each axis,
+   * so every pair of points is within it
+   */
+  private static final long MAX_RADIUS = 3_037_000_499L;
+
+  /**
+   * Visitor of the pairs of point indices found by a join.
+   */
+  public interface PairVisitor {
+    public void visit(int i, int j);
+  }
+
+  /**
+   * Test against the naive approach, then time closestPair against ClosestPair's engines.
+   * Usage: java GridHash [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 300; test++) {
+      final int n = 2 + rd.nextInt(1500);
+      final int bound = test % 3 == 0 ? 40 : 1 << (10 + rd.nextInt(20));
+      Point[] points = new Point[n];
+      for (int i = 0; i < n; i++) {
+        points[i] = new Point(rd.nextInt(bound) - bound / 2, rd.nextInt(bound) - bound / 2);
+      }
+      long expected = ClosestPair.findNearestPairNaive(points, 0, n - 1).distance();
+      long actual = closestPair(points).distance();
+      if (actual != expected) {
+        throw new AssertionError(String.format("closestPair distance = %d; expected = %d", actual, expected));
+      }
+
+      final long r = (long) Math.sqrt(expected) + rd.nextInt(bound / 10 + 1);
+      long expectedCount = 0;
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          if (points[i].distanceTo(points[j]) <= r * r) {
+            expectedCount++;
+          }
+        }
+      }
+      long[] visited = new long[1];
+      long count = radiusJoin(points, r, (i, j) -> {
+        if (i == j || points[i].distanceTo(points[j]) > r * r) {
+          throw new AssertionError(String.format("radiusJoin visited (%d, %d), not within %d", i, j, r));
+        }
+        visited[0]++;
+      });
+      if (count != expectedCount || visited[0] != expectedCount) {
+        throw new AssertionError(String.format("radiusJoin found %d pairs within %d; expected = %d",
+                                               count, r, expectedCount));
+      }
+    }
+
+    // Radii whose square overflows a long join every pair, even of points at the ends of the coordinate span
+    Point[] corners = {new Point(Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2), new Point(0, 0),
+                       new Point(Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2)};
+    for (long r : new long[] {MAX_RADIUS, MAX_RADIUS + 1, 4_000_000_000L, Long.MAX_VALUE}) {
+      long count = radiusJoin(corners, r, null);
+      if (count != 3) {
+        throw new AssertionError(String.format("radiusJoin found %d pairs within %d; expected = 3", count, r));
+      }
+    }
+
+    // Many coincident points next to distinct points 1 apart: the sieve may stop on a distinct point,
+    // leaving all the coincident ones in a single cell of the final grid
+    final int copies = 50_000;
+    Point[] duplicates = new Point[2 * copies];
+    for (int i = 0; i < copies; i++) {
+      duplicates[i] = new Point(0, 0);
+      duplicates[copies + i] = new Point(1 + i % 1000, i / 1000);
+    }
+    for (int test = 0; test < 5; test++) {
+      long start = System.nanoTime();
+      long distance = closestPair(duplicates).distance();
+      long time = System.nanoTime() - start;
+      if (distance != 0) {
+        throw new AssertionError(String.format("closestPair distance = %d on coincident points", distance));
+      }
+      if (time > 1_000_000_000L) {
+        throw new AssertionError(String.format("closestPair took %.1f ms on %d coincident points",
+                                               time / 1e6, copies));
+      }
+    }
+
+    int n = 1_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    // Distinct x and y coordinates, as findNearestPair(Point[]) needs
+    int[] ys = new int[n];
+    for (int i = 0; i < n; i++) {
+      ys[i] = 1000 * i + rd.nextInt(1000);
+    }
+    Point[] points = new Point[n];
+    for (int i = n - 1; i >= 0; i--) {
+      int j = rd.nextInt(i + 1);
+      int y = ys[j];
+      ys[j] = ys[i];
+      points[i] = new Point(1000 * i + rd.nextInt(1000), y);
+    }
+    final int smallN = 20_000;
+    Point[] small = Arrays.copyOf(points, smallN);
+
+    long start = System.nanoTime();
+    long grid = closestPair(points).distance();
+    long gridTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long divideAndConquer = ClosestPair.findNearestPair(points.clone()).distance();
+    long divideAndConquerTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long joined = radiusJoin(points, (long) Math.sqrt(grid) * 10, null);
+    long joinTime = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  closestPair: GridHash %.1f ms  findNearestPair %.1f ms"
+                                     + " (%d vs %d); radiusJoin(10x) %d pairs %.1f ms",
+                                     n, gridTime / 1e6, divideAndConquerTime / 1e6, grid, divideAndConquer,
+                                     joined, joinTime / 1e6));
+    start = System.nanoTime();
+    grid = closestPair(small).distance();
+    gridTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long naive = ClosestPair.findNearestPairNaive(small, 0, smallN - 1).distance();
+    long naiveTime = System.nanoTime() - start;
+    if (grid != naive) {
+      throw new AssertionError(String.format("closestPair distance = %d; expected = %d", grid, naive));
+    }
+    System.out.println(String.format("n = %d  closestPair: GridHash %.1f ms  findNearestPairNaive %.1f ms",
+                                     smallN, gridTime / 1e6, naiveTime / 1e6));
+  }
+
+  /**
+   * Visit every pair of indices i < j such that points[i] and points[j] are at distance at most r,
+   * and return the number of such pairs. visitor may be null to only count them.
+   * Radii beyond the span of the coordinates join every pair.
+   */
+  public static long radiusJoin(Point[] points, long r, PairVisitor visitor) {
+    if (points == null) {
+      throw new NullPointerException("The points array is null!");
+    }
+    if (r < 0) {
+      throw new IllegalArgumentException(String.format("radius %d must not be negative", r));
+    }
+    final int n = points.length;
+    int[] xs = new int[n];
+    int[] ys = new int[n];
+    int[] ids = new int[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = points[i].getX();
+      ys[i] = points[i].getY();
+      ids[i] = i;
+    }
+
+    final long radius = Math.min(r, MAX_RADIUS);
+    final long rr = radius * radius;
+    Grid grid = new Grid(xs, ys, ids, n, Math.max(1, radius));
+    long count = 0;
+    for (int c = 0; c < grid.numCells; c++) {
+      for (int a = grid.cellStart[c]; a < grid.cellStart[c + 1]; a++) {
+        int p = grid.members[a];
+        for (int b = a + 1; b < grid.cellStart[c + 1]; b++) {
+          count += visitIfWithin(xs, ys, p, grid.members[b], rr, visitor);
+        }
+      }
+      for (int dir = 0; dir < FORWARD_DX.length; dir++) {
+        int d = grid.find(grid.cellX[c] + FORWARD_DX[dir], grid.cellY[c] + FORWARD_DY[dir]);
+        if (d < 0) {
+          continue;
+        }
+        for (int a = grid.cellStart[c]; a < grid.cellStart[c + 1]; a++) {
+          for (int b = grid.cellStart[d]; b < grid.cellStart[d + 1]; b++) {
+            count += visitIfWithin(xs, ys, grid.members[a], grid.members[b], rr, visitor);
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /* Visit the pair of p and q, in increasing order, if they are at squared distance at most rr; return 1 if so */
+  private static int visitIfWithin(int[] xs, int[] ys, int p, int q, long rr, PairVisitor visitor) {
+    if (ClosestPair.squaredDistance(xs, ys, p, q) > rr) {
+      return 0;
+    }
+    if (visitor != null) {
+      visitor.visit(Math.min(p, q), Math.max(p, q));
+    }
+    return 1;
+  }
+
+  /**
+   * Find a closest pair in the point set points in expected O(n) time.
+   *
+   * 1) Sieve: pick a random remaining point, let d be the distance to its nearest remaining neighbor,
+   *    and drop every point that has no other point within the 3x3 block of cells of side d/3 around it.
+   *    The picked point is always dropped, and about half of the others are expected to be.
+   * 2) d of the last round is a distance between two points, so it is at least the closest distance;
+   *    and since that round dropped both points of a closest pair, it is at most about 3 times it.
+   *    A single grid of side d then holds O(1) points per cell, and a closest pair lies in adjacent cells.
+   * Coincident points are never dropped by the sieve, so they may crowd a cell of the final grid:
+   * the search returns at the first pair at distance 0, which keeps it linear.
+   */
+  public static Pair closestPair(Point[] points) {
+    if (points == null) {
+      throw new NullPointerException("The points array is null!");
+    }
+    final int n = points.length;
+    if (n < 2) {
+      throw new IllegalArgumentException("At least 2 points are needed!");
+    }
+    int[] xs = new int[n];
+    int[] ys = new int[n];
+    int[] active = new int[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = points[i].getX();
+      ys[i] = points[i].getY();
+      active[i] = i;
+    }
+
+    // 1) Sieve
+    Random rd = ThreadLocalRandom.current();
+    int[] kept = new int[n];
+    int m = n;
+    long best = Long.MAX_VALUE;
+    int bestP = -1;
+    int bestQ = -1;
+    while (m > 1) {
+      int p = active[rd.nextInt(m)];
+      long nearest = Long.MAX_VALUE;
+      int nearestQ = -1;
+      for (int i = 0; i < m; i++) {
+        int q = active[i];
+        long d = ClosestPair.squaredDistance(xs, ys, p, q);
+        if (q != p && d < nearest) {
+          nearest = d;
+          nearestQ = q;
+        }
+      }
+      best = nearest;
+      bestP = p;
+      bestQ = nearestQ;
+      // Below 3 a cell would round down to less than d/3, and nothing is left to gain anyway
+      if (best < 9) {
+        break;
+      }
+
+      Grid grid = new Grid(xs, ys, active, m, (long) (Math.sqrt(best) / 3));
+      int numKept = 0;
+      for (int i = 0; i < m; i++) {
+        if (grid.hasNeighbor(xs[active[i]], ys[active[i]])) {
+          kept[numKept++] = active[i];
+        }
+      }
+      int[] tmp = active;
+      active = kept;
+      kept = tmp;
+      m = numKept;
+    }
+    if (best == 0) {
+      return new Pair(points[bestP], points[bestQ]);
+    }
+
+    // 2) Search adjacent cells of side at least d for anything closer than the sieve's last pair
+    long side = (long) Math.ceil(Math.sqrt(best));
+    while (side * side < best) {
+      side++;
+    }
+    for (int i = 0; i < n; i++) {
+      active[i] = i;
+    }
+    Grid grid = new Grid(xs, ys, active, n, side);
+    for (int c = 0; c < grid.numCells; c++) {
+      for (int a = grid.cellStart[c]; a < grid.cellStart[c + 1]; a++) {
+        int p = grid.members[a];
+        for (int b = a + 1; b < grid.cellStart[c + 1]; b++) {
+          int q = grid.members[b];
+          long d = ClosestPair.squaredDistance(xs, ys, p, q);
+          if (d == 0) {
+            return new Pair(points[p], points[q]);
+          }
+          if (d < best) {
+            best = d;
+            bestP = p;
+            bestQ = q;
+          }
+        }
+      }
+      for (int dir = 0; dir < FORWARD_DX.length; dir++) {
+        int e = grid.find(grid.cellX[c] + FORWARD_DX[dir], grid.cellY[c] + FORWARD_DY[dir]);
+        if (e < 0) {
+          continue;
+        }
+        for (int a = grid.cellStart[c]; a < grid.cellStart[c + 1]; a++) {
+          int p = grid.members[a];
+          for (int b = grid.cellStart[e]; b < grid.cellStart[e + 1]; b++) {
+            int q = grid.members[b];
+            long d = ClosestPair.squaredDistance(xs, ys, p, q);
+            if (d == 0) {
+              return new Pair(points[p], points[q]);
+            }
+            if (d < best) {
+              best = d;
+              bestP = p;
+              bestQ = q;
+            }
+          }
+        }
+      }
+    }
+    return new Pair(points[bestP], points[bestQ]);
+  }
+
+
+  /*
+   * Points ids[0..m-1] bucketed by cells of the given side: cell c has coordinates (cellX[c], cellY[c])
+   * and its points are members[cellStart[c]..cellStart[c+1]-1].
+   */
+  private static class Grid {
+    private final long side;
+    private final int numCells;
+    private final long[] cellX;
+    private final long[] cellY;
+    private final int[] cellStart;
+    private final int[] members;
+    // open addressing table from cell key to cell number, -1 for an empty slot
+    private final long[] tableKeys;
+    private final int[] tableCells;
+    private final int mask;
+
+    private Grid(int[] xs, int[] ys, int[] ids, int m, long side) {
+      this.side = side;
+      int capacity = Integer.highestOneBit(Math.max(1, m)) << 2;
+      this.tableKeys = new long[capacity];
+      this.tableCells = new int[capacity];
+      Arrays.fill(tableCells, -1);
+      this.mask = capacity - 1;
+      this.cellX = new long[m];
+      this.cellY = new long[m];
+
+      // Number the non-empty cells and count their points
+      int[] cellOf = new int[m];
+      int[] counts = new int[m + 1];
+      int cells = 0;
+      for (int i = 0; i < m; i++) {
+        long cx = Math.floorDiv(xs[ids[i]], side);
+        long cy = Math.floorDiv(ys[ids[i]], side);
+        int slot = slot(cx, cy);
+        if (tableCells[slot] < 0) {
+          tableKeys[slot] = key(cx, cy);
+          tableCells[slot] = cells;
+          cellX[cells] = cx;
+          cellY[cells] = cy;
+          cells++;
+        }
+        cellOf[i] = tableCells[slot];
+        counts[cellOf[i] + 1]++;
+      }
+      this.numCells = cells;
+
+      // Counting sort of the points by cell
+      for (int c = 0; c < cells; c++) {
+        counts[c + 1] += counts[c];
+      }
+      this.cellStart = Arrays.copyOf(counts, cells + 1);
+      this.members = new int[m];
+      for (int i = 0; i < m; i++) {
+        members[counts[cellOf[i]]++] = ids[i];
+      }
+    }
+
+    /* Return the number of cell (cx, cy), or -1 if it holds no point */
+    private int find(long cx, long cy) {
+      return tableCells[slot(cx, cy)];
+    }
+
+    /* Return whether the 3x3 block of cells around point (x, y) holds some other point */
+    private boolean hasNeighbor(int x, int y) {
+      long cx = Math.floorDiv(x, side);
+      long cy = Math.floorDiv(y, side);
+      for (long dx = -1; dx <= 1; dx++) {
+        for (long dy = -1; dy <= 1; dy++) {
+          int c = find(cx + dx, cy + dy);
+          if (c >= 0 && cellStart[c + 1] - cellStart[c] > (dx == 0 && dy == 0 ? 1 : 0)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /* Return the slot of cell (cx, cy) if present, otherwise the empty slot where it would go */
+    private int slot(long cx, long cy) {
+      long key = key(cx, cy);
+      long h = key * 0x9E3779B97F4A7C15L;
+      int slot = (int) (h ^ (h >>> 32)) & mask;
+      while (tableCells[slot] >= 0 && tableKeys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private static long key(long cx, long cy) {
+      return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+  }
+
+}
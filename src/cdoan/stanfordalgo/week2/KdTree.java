@@ -0,0 +1,292 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import cdoan.stanfordalgo.week2.ClosestPair.Point;
+
+
+/**
+ * Static 2-d tree over ClosestPair.Point for k-nearest-neighbor queries.
+ * The tree is implicit in an array of point indices: the subtree of range [lo..hi-1] has its root at
+ * mid = (lo + hi) / 2, with the points not greater than the root's coordinate on the left and those not less
+ * on the right, splitting on x at even depths and on y at odd depths. It is built by quickselect in O(nlogn)
+ * time and a query visits O(sqrt(n) + k) nodes at worst, O(logn + k) on well spread points.
+ * Coordinates must span less than 2^31 on each axis, as for ClosestPair.findNearestPair(xs, ys, pair).
+ */
+public class KdTree {
+  private final int[] xs;
+  private final int[] ys;
+  private final int[] tree;
+
+  /**
+   * Test against brute force, then time all-points kNN.
+   * Usage: java KdTree [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 200; test++) {
+      final int n = 2 + rd.nextInt(1000);
+      final int bound = test % 3 == 0 ? 20 : 1 << 30;
+      Point[] points = new Point[n];
+      for (int i = 0; i < n; i++) {
+        points[i] = new Point(rd.nextInt(bound), rd.nextInt(bound));
+      }
+      KdTree kdTree = new KdTree(points);
+      final int k = 1 + rd.nextInt(Math.min(n - 1, 20));
+      int[][] neighbors = kdTree.allNearest(k);
+      for (int i = 0; i < n; i++) {
+        long[] expected = new long[n - 1];
+        for (int j = 0, e = 0; j < n; j++) {
+          if (j != i) {
+            expected[e++] = points[i].distanceTo(points[j]);
+          }
+        }
+        Arrays.sort(expected);
+        for (int j = 0; j < k; j++) {
+          int q = neighbors[i][j];
+          if (q == i || points[i].distanceTo(points[q]) != expected[j]) {
+            throw new AssertionError(String.format("%d-th nearest neighbor of point %d is %d; expected distance %d",
+                                                   j + 1, i, q, expected[j]));
+          }
+        }
+      }
+      // Nearest pair from the 1-NN of every point
+      long closest = Long.MAX_VALUE;
+      for (int i = 0; i < n; i++) {
+        closest = Math.min(closest, points[i].distanceTo(points[neighbors[i][0]]));
+      }
+      if (closest != ClosestPair.findNearestPairNaive(points, 0, n - 1).distance()) {
+        throw new AssertionError("KdTree's nearest neighbors miss the closest pair!");
+      }
+    }
+
+    int n = 1_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    Point[] points = new Point[n];
+    for (int i = 0; i < n; i++) {
+      points[i] = new Point(rd.nextInt(1 << 30), rd.nextInt(1 << 30));
+    }
+    long start = System.nanoTime();
+    KdTree kdTree = new KdTree(points);
+    long buildTime = System.nanoTime() - start;
+    final int k = 8;
+    start = System.nanoTime();
+    int[][] neighbors = kdTree.allNearest(k);
+    long queryTime = System.nanoTime() - start;
+    long closest = Long.MAX_VALUE;
+    for (int i = 0; i < n; i++) {
+      closest = Math.min(closest, points[i].distanceTo(points[neighbors[i][0]]));
+    }
+    start = System.nanoTime();
+    long expected = GridHash.closestPair(points).distance();
+    long gridTime = System.nanoTime() - start;
+    if (closest != expected) {
+      throw new AssertionError(String.format("closest 1-NN distance = %d; expected = %d", closest, expected));
+    }
+    System.out.println(String.format("n = %d  KdTree build %.1f ms  all %d-NN %.1f ms  (closest pair: GridHash %.1f ms)",
+                                     n, buildTime / 1e6, k, queryTime / 1e6, gridTime / 1e6));
+  }
+
+  /**
+   * Build the tree over points; later changes to the array are not seen by the tree.
+   */
+  public KdTree(Point[] points) {
+    if (points == null) {
+      throw new NullPointerException("The points array is null!");
+    }
+    final int n = points.length;
+    xs = new int[n];
+    ys = new int[n];
+    tree = new int[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = points[i].getX();
+      ys[i] = points[i].getY();
+      tree[i] = i;
+    }
+    build(0, n, 0);
+  }
+
+  /**
+   * Get the number of points in the tree.
+   */
+  public int size() {
+    return tree.length;
+  }
+
+  /**
+   * Return the indices of the k points nearest to (x, y), nearest first.
+   */
+  public int[] nearest(int x, int y, int k) {
+    if (k < 1 || k > tree.length) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, tree.length));
+    }
+    NeighborHeap heap = new NeighborHeap(k);
+    search(0, tree.length, 0, x, y, -1, heap);
+    return heap.drainNearestFirst(new int[k]);
+  }
+
+  /**
+   * Return, for every point i, the indices of the k points other than i nearest to it, nearest first.
+   */
+  public int[][] allNearest(int k) {
+    if (k < 1 || k >= tree.length) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, tree.length - 1));
+    }
+    NeighborHeap heap = new NeighborHeap(k);
+    int[][] res = new int[tree.length][];
+    // Querying in tree order keeps consecutive queries in nearby nodes
+    for (int p : tree) {
+      search(0, tree.length, 0, xs[p], ys[p], p, heap);
+      res[p] = heap.drainNearestFirst(new int[k]);
+    }
+    return res;
+  }
+
+  /* Build the subtree of range tree[lo..hi-1] at the given depth */
+  private void build(int lo, int hi, int depth) {
+    while (hi - lo > 1) {
+      int mid = (lo + hi) >>> 1;
+      select(depth % 2 == 0 ? xs : ys, lo, hi - 1, mid);
+      build(lo, mid, depth + 1);
+      lo = mid + 1;
+      depth++;
+    }
+  }
+
+  /*
+   * Rearrange tree[lo..hi] so that tree[rank] is the point it would be if they were sorted by coords,
+   * with no greater coordinate before it and no less one after it (quickselect with 3-way partitioning)
+   */
+  private void select(int[] coords, int lo, int hi, int rank) {
+    Random rd = ThreadLocalRandom.current();
+    while (lo < hi) {
+      swap(lo, lo + rd.nextInt(hi - lo + 1));
+      int pivot = coords[tree[lo]];
+      int lt = lo;
+      int gt = hi;
+      for (int i = lo + 1; i <= gt;) {
+        int c = coords[tree[i]];
+        if (c < pivot) {
+          swap(lt++, i++);
+        } else if (c > pivot) {
+          swap(i, gt--);
+        } else {
+          i++;
+        }
+      }
+      if (rank < lt) {
+        hi = lt - 1;
+      } else if (rank > gt) {
+        lo = gt + 1;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    int ti = tree[i];
+    tree[i] = tree[j];
+    tree[j] = ti;
+  }
+
+  /* Offer the points of the subtree of range tree[lo..hi-1] other than exclude to heap, nearer side first */
+  private void search(int lo, int hi, int depth, long x, long y, int exclude, NeighborHeap heap) {
+    if (lo >= hi) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    int p = tree[mid];
+    if (p != exclude) {
+      long dx = x - xs[p];
+      long dy = y - ys[p];
+      heap.offer(dx * dx + dy * dy, p);
+    }
+    long diff = depth % 2 == 0 ? x - xs[p] : y - ys[p];
+    int nearLo = diff < 0 ? lo : mid + 1;
+    int nearHi = diff < 0 ? mid : hi;
+    int farLo = diff < 0 ? mid + 1 : lo;
+    int farHi = diff < 0 ? hi : mid;
+    search(nearLo, nearHi, depth + 1, x, y, exclude, heap);
+    // The far side is at least |diff| away
+    if (!heap.isFull() || diff * diff < heap.worst()) {
+      search(farLo, farHi, depth + 1, x, y, exclude, heap);
+    }
+  }
+
+
+  /* Bounded max-heap of (squared distance, point index), keeping the k nearest points offered */
+  private static class NeighborHeap {
+    private final long[] dists;
+    private final int[] ids;
+    private int size;
+
+    private NeighborHeap(int k) {
+      dists = new long[k];
+      ids = new int[k];
+    }
+
+    private boolean isFull() {
+      return size == dists.length;
+    }
+
+    /* Squared distance of the farthest point kept */
+    private long worst() {
+      return dists[0];
+    }
+
+    private void offer(long dist, int id) {
+      if (size < dists.length) {
+        // swim up from the new leaf
+        int i = size++;
+        while (i > 0 && dists[(i - 1) / 2] < dist) {
+          dists[i] = dists[(i - 1) / 2];
+          ids[i] = ids[(i - 1) / 2];
+          i = (i - 1) / 2;
+        }
+        dists[i] = dist;
+        ids[i] = id;
+      } else if (dist < dists[0]) {
+        sinkFromRoot(dist, id);
+      }
+    }
+
+    /* Replace the root by (dist, id) and sink it down */
+    private void sinkFromRoot(long dist, int id) {
+      int i = 0;
+      while (2 * i + 1 < size) {
+        int child = 2 * i + 1;
+        if (child + 1 < size && dists[child + 1] > dists[child]) {
+          child++;
+        }
+        if (dists[child] <= dist) {
+          break;
+        }
+        dists[i] = dists[child];
+        ids[i] = ids[child];
+        i = child;
+      }
+      dists[i] = dist;
+      ids[i] = id;
+    }
+
+    /* Move the kept indices into res, nearest first, and empty the heap */
+    private int[] drainNearestFirst(int[] res) {
+      while (size > 0) {
+        res[size - 1] = ids[0];
+        size--;
+        if (size > 0) {
+          sinkFromRoot(dists[size], ids[size]);
+        }
+      }
+      return res;
+    }
+  }
+
+}
@@ -115,7 +115,7 @@ public class MatrixMultiplicationStrassenAlgo {
   }
   
   /* Brute-force O(n^3) running time */
-  private static long[][] cubicAlgo(long[][] X, long[][] Y) {
+  static long[][] cubicAlgo(long[][] X, long[][] Y) {
     final int n = X.length;
     long[][] Z = new long[n][n];
     for (int i = 0; i < n; i++) {
@@ -141,7 +141,7 @@ public class MatrixMultiplicationStrassenAlgo {
   }
   
   /* Helper method for testing if X == Y */
-  private static boolean matrixEqual(long[][] X, long[][] Y) {
+  static boolean matrixEqual(long[][] X, long[][] Y) {
     final int n = X.length;
     for (int i = 0; i < n; i++) {
       for (int j = 0; j < n; j++) {
@@ -0,0 +1,298 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Fork-join closest pair on points stored as a struct of arrays, like ClosestPair.findNearestPair(xs, ys, pair).
+ * The left and right halves are searched as separate tasks; after the join their y-sorted index runs
+ * are merged, the merge itself being split by binary search, and the strip around the dividing line is checked.
+ * Ranges shorter than the threshold are handled by ClosestPair's sequential recursion.
+ */
+public class ParallelClosestPair {
+
+  /** Ranges (and merges) shorter than this are handled sequentially. */
+  public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+  /**
+   * Test against ClosestPair, then report scaling from 1 to N threads for each size.
+   * Usage: java -Xmx4g ParallelClosestPair [n ...], e.g. 1000000 10000000 50000000
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    int[] pair = new int[2];
+    int[] expectedPair = new int[2];
+    for (int test = 0; test < 200; test++) {
+      final int n = 2 + rd.nextInt(20000);
+      final int bound = test % 3 == 0 ? 100 : 1 << 30;
+      int[] xs = new int[n];
+      int[] ys = new int[n];
+      for (int i = 0; i < n; i++) {
+        xs[i] = rd.nextInt(bound);
+        ys[i] = rd.nextInt(bound);
+      }
+      long expected = ClosestPair.findNearestPair(xs, ys, expectedPair);
+      long actual = findNearestPair(xs, ys, pair, ForkJoinPool.commonPool(), 2 + rd.nextInt(500));
+      if (actual != expected || pair[0] == pair[1] || ClosestPair.squaredDistance(xs, ys, pair[0], pair[1]) != actual) {
+        throw new AssertionError(String.format("findNearestPair = %d with pair (%d, %d); expected %d",
+                                               actual, pair[0], pair[1], expected));
+      }
+    }
+
+    int[] sizes = {1_000_000, 10_000_000};
+    if (args.length > 0) {
+      try {
+        sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+          sizes[i] = Integer.parseInt(args[i]);
+        }
+      } catch (NumberFormatException nfe) {
+        sizes = new int[] {1_000_000, 10_000_000};
+      }
+    }
+    final int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int n : sizes) {
+      int[] xs = new int[n];
+      int[] ys = new int[n];
+      for (int i = 0; i < n; i++) {
+        xs[i] = rd.nextInt(1 << 30);
+        ys[i] = rd.nextInt(1 << 30);
+      }
+      long base = 0;
+      for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+          long start = System.nanoTime();
+          findNearestPair(xs, ys, pair, pool, DEFAULT_THRESHOLD);
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        pool.shutdown();
+        if (threads == 1) {
+          base = best;
+        }
+        System.out.println(String.format("n = %9d  threads = %2d  %9.1f ms  speedup %.2fx",
+                                         n, threads, best / 1e6, (double) base / best));
+      }
+    }
+  }
+
+  /* 1, 2, 4, ... and finally maxThreads itself */
+  private static int nextThreadCount(int threads, int maxThreads) {
+    if (threads == maxThreads) {
+      return maxThreads + 1;
+    }
+    return Math.min(threads * 2, maxThreads);
+  }
+
+  /**
+   * Find a closest pair on the common pool with the default threshold.
+   */
+  public static long findNearestPair(int[] xs, int[] ys, int[] pair) {
+    return findNearestPair(xs, ys, pair, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Find a closest pair among the points (xs[i], ys[i]) on the given pool; xs and ys are left unchanged.
+   * The indices of the two points are written into pair[0] and pair[1], and their squared distance is returned.
+   * Same preconditions as ClosestPair.findNearestPair(xs, ys, pair).
+   */
+  public static long findNearestPair(int[] xs, int[] ys, int[] pair, ForkJoinPool pool, int threshold) {
+    if (xs == null || ys == null || pair == null) {
+      throw new NullPointerException("xs, ys or pair is null");
+    }
+    final int n = xs.length;
+    if (ys.length != n || n < 2) {
+      throw new IllegalArgumentException("xs and ys must have the same length of at least 2");
+    }
+    if (pair.length < 2) {
+      throw new IllegalArgumentException("pair must have a length of at least 2");
+    }
+    if (pool == null) {
+      throw new NullPointerException("The pool is null!");
+    }
+    if (threshold < 2) {
+      throw new IllegalArgumentException(String.format("threshold %d must be at least 2", threshold));
+    }
+
+    // Sort indices by (x, index) keys; parallelSort runs on the common pool
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = ((long) xs[i] << 32) | i;
+    }
+    Arrays.parallelSort(keys);
+    int[] byX = new int[n];
+    for (int i = 0; i < n; i++) {
+      byX[i] = (int) keys[i];
+    }
+    keys = null;
+    int[] byY = byX.clone();
+    int[] aux = new int[n];
+    return pool.invoke(new ClosestTask(xs, ys, byX, byY, aux, 0, n, pair, threshold));
+  }
+
+  /*
+   * Find a closest pair among the points byX[lo..hi-1], writing its indices into pair, and return its squared
+   * distance, or Long.MAX_VALUE for a single point. Leaves byY[lo..hi-1] sorted by ys, as ClosestPair does.
+   */
+  private static class ClosestTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] byX;
+    private final int[] byY;
+    private final int[] aux;
+    private final int lo;
+    private final int hi;
+    private final int[] pair;
+    private final int threshold;
+
+    private ClosestTask(int[] xs, int[] ys, int[] byX, int[] byY, int[] aux, int lo, int hi,
+                        int[] pair, int threshold) {
+      this.xs = xs;
+      this.ys = ys;
+      this.byX = byX;
+      this.byY = byY;
+      this.aux = aux;
+      this.lo = lo;
+      this.hi = hi;
+      this.pair = pair;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected Long compute() {
+      if (hi - lo < threshold) {
+        return ClosestPair.findNearestPair(xs, ys, byX, byY, aux, lo, hi, Long.MAX_VALUE, pair);
+      }
+
+      final int mid = (lo + hi) >>> 1;
+      final long centerX = xs[byX[mid]];
+      int[] leftPair = new int[2];
+      ClosestTask left = new ClosestTask(xs, ys, byX, byY, aux, lo, mid, leftPair, threshold);
+      ClosestTask right = new ClosestTask(xs, ys, byX, byY, aux, mid, hi, pair, threshold);
+      left.fork();
+      long best = right.compute();
+      long leftBest = left.join();
+      if (leftBest < best) {
+        best = leftBest;
+        pair[0] = leftPair[0];
+        pair[1] = leftPair[1];
+      }
+
+      System.arraycopy(byY, lo, aux, lo, hi - lo);
+      new MergeTask(ys, aux, lo, mid, mid, hi, byY, lo, threshold).compute();
+      return ClosestPair.closestSplitPair(xs, ys, byY, aux, lo, hi, centerX, best, pair);
+    }
+  }
+
+  /*
+   * Merge src[lo1..hi1-1] (left run) and src[lo2..hi2-1] (right run), both sorted by ys, into dst[k..].
+   * On equal ys the left run's index comes first, as in ClosestPair.mergeByY.
+   */
+  private static class MergeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int[] ys;
+    private final int[] src;
+    private final int lo1;
+    private final int hi1;
+    private final int lo2;
+    private final int hi2;
+    private final int[] dst;
+    private final int k;
+    private final int threshold;
+
+    private MergeTask(int[] ys, int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int k, int threshold) {
+      this.ys = ys;
+      this.src = src;
+      this.lo1 = lo1;
+      this.hi1 = hi1;
+      this.lo2 = lo2;
+      this.hi2 = hi2;
+      this.dst = dst;
+      this.k = k;
+      this.threshold = threshold;
+    }
+
+    /* Split the longer run at its middle element and binary search that element's position in the other run */
+    @Override
+    protected void compute() {
+      int len1 = hi1 - lo1;
+      int len2 = hi2 - lo2;
+      if (len1 + len2 < threshold) {
+        merge(ys, src, lo1, hi1, lo2, hi2, dst, k);
+        return;
+      }
+
+      int m1;
+      int m2;
+      if (len1 >= len2) {
+        m1 = (lo1 + hi1) >>> 1;
+        // right run indices with y < y of src[m1] go before it
+        m2 = lowerBound(ys, src, lo2, hi2, ys[src[m1]]);
+        int p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m1];
+        invokeAll(new MergeTask(ys, src, lo1, m1, lo2, m2, dst, k, threshold),
+                  new MergeTask(ys, src, m1 + 1, hi1, m2, hi2, dst, p + 1, threshold));
+      } else {
+        m2 = (lo2 + hi2) >>> 1;
+        // left run indices with y <= y of src[m2] go before it
+        m1 = upperBound(ys, src, lo1, hi1, ys[src[m2]]);
+        int p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m2];
+        invokeAll(new MergeTask(ys, src, lo1, m1, lo2, m2, dst, k, threshold),
+                  new MergeTask(ys, src, m1, hi1, m2 + 1, hi2, dst, p + 1, threshold));
+      }
+    }
+  }
+
+  /* Sequentially merge src[lo1..hi1-1] and src[lo2..hi2-1] into dst[k..] */
+  private static void merge(int[] ys, int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int k) {
+    int i = lo1;
+    int j = lo2;
+    while (i < hi1 && j < hi2) {
+      if (ys[src[j]] < ys[src[i]]) {
+        dst[k++] = src[j++];
+      } else {
+        dst[k++] = src[i++];
+      }
+    }
+    while (i < hi1) {
+      dst[k++] = src[i++];
+    }
+    while (j < hi2) {
+      dst[k++] = src[j++];
+    }
+  }
+
+  /* Return the first index in src[lo..hi-1] whose point's y is not less than y, or hi */
+  private static int lowerBound(int[] ys, int[] src, int lo, int hi, int y) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (ys[src[mid]] < y) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /* Return the first index in src[lo..hi-1] whose point's y is greater than y, or hi */
+  private static int upperBound(int[] ys, int[] src, int lo, int hi, int y) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (y < ys[src[mid]]) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+}
@@ -0,0 +1,244 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Fork-join inversion counting on int arrays.
+ * Both halves are counted as separate tasks and the merge that counts split inversions
+ * is itself split by binary search, so the top-level merges run in parallel too.
+ */
+public class ParallelCountInversions {
+
+  /** Subarrays (and merges) shorter than this are handled sequentially. */
+  public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+  /**
+   * Test against CountInversions on random input, then time it.
+   * Usage: java ParallelCountInversions [n]
+   */
+  public static void main(String[] args) {
+    Random random = new Random();
+    for (int test = 0; test < 200; ++test) {
+      int[] a = new int[random.nextInt(20000)];
+      for (int i = 0; i < a.length; i++) {
+        a[i] = random.nextInt(test % 2 == 0 ? 50 : Integer.MAX_VALUE);
+      }
+      long expected = CountInversions.countInversions(a.clone(), new int[a.length]);
+      long actual = countInversions(a, new int[a.length], ForkJoinPool.commonPool(), 1 + random.nextInt(500));
+      if (actual != expected) {
+        throw new AssertionError(String.format("counted %d inversions; expected %d", actual, expected));
+      }
+      for (int i = 1; i < a.length; i++) {
+        if (a[i] < a[i - 1]) {
+          throw new AssertionError("The array is Not sorted!");
+        }
+      }
+    }
+
+    int n = 10_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    int[] input = new int[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = random.nextInt();
+    }
+    int[] aux = new int[n];
+    long start = System.nanoTime();
+    CountInversions.countInversions(input.clone(), aux);
+    long sequential = System.nanoTime() - start;
+    start = System.nanoTime();
+    countInversions(input.clone(), aux);
+    long parallel = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  sequential %.1f ms  parallel (%d threads) %.1f ms",
+                                     n, sequential / 1e6, ForkJoinPool.commonPool().getParallelism(),
+                                     parallel / 1e6));
+  }
+
+  /**
+   * Count inversions of a on the common pool with the default threshold; a ends up sorted.
+   */
+  public static long countInversions(int[] a, int[] aux) {
+    return countInversions(a, aux, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Count inversions of a on the given pool; a ends up sorted.
+   * Subarrays shorter than threshold are counted sequentially.
+   */
+  public static long countInversions(int[] a, int[] aux, ForkJoinPool pool, int threshold) {
+    if (a == null || aux == null) {
+      throw new NullPointerException("The input array or auxiliary array is null!");
+    }
+    if (aux == a || aux.length < a.length) {
+      throw new IllegalArgumentException("Auxiliary array must be distinct from and at least as long as input array!");
+    }
+    if (pool == null) {
+      throw new NullPointerException("The pool is null!");
+    }
+    if (threshold < 1) {
+      throw new IllegalArgumentException(String.format("threshold %d must be positive", threshold));
+    }
+
+    System.arraycopy(a, 0, aux, 0, a.length);
+    return pool.invoke(new CountTask(a, 0, a.length - 1, aux, threshold));
+  }
+
+  /* Count inversions in a[lo..hi] using aux as buffer; aux[lo..hi] must hold the same elements */
+  private static class CountTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+    private final int[] a;
+    private final int lo;
+    private final int hi;
+    private final int[] aux;
+    private final int threshold;
+
+    private CountTask(int[] a, int lo, int hi, int[] aux, int threshold) {
+      this.a = a;
+      this.lo = lo;
+      this.hi = hi;
+      this.aux = aux;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected Long compute() {
+      if (hi - lo < threshold) {
+        return CountInversions.countInversions(a, lo, hi, aux);
+      }
+      int mid = (lo + hi) / 2;
+      CountTask left = new CountTask(aux, lo, mid, a, threshold);
+      CountTask right = new CountTask(aux, mid + 1, hi, a, threshold);
+      left.fork();
+      long rightCount = right.compute();
+      long leftCount = left.join();
+      long splitCount = new SplitTask(aux, lo, mid, mid + 1, hi, a, lo, threshold).compute();
+      return leftCount + rightCount + splitCount;
+    }
+  }
+
+  /*
+   * Merge sorted src[lo1..hi1] (left run) and src[lo2..hi2] (right run) into dst[k..]
+   * and count split inversions, i.e. pairs of a left element greater than a right element.
+   */
+  private static class SplitTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+    private final int[] src;
+    private final int lo1;
+    private final int hi1;
+    private final int lo2;
+    private final int hi2;
+    private final int[] dst;
+    private final int k;
+    private final int threshold;
+
+    private SplitTask(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int k, int threshold) {
+      this.src = src;
+      this.lo1 = lo1;
+      this.hi1 = hi1;
+      this.lo2 = lo2;
+      this.hi2 = hi2;
+      this.dst = dst;
+      this.k = k;
+      this.threshold = threshold;
+    }
+
+    /*
+     * Split the longer run at its middle element x and binary search x's position in the other run.
+     * Every right element that lands left of the split point is then less than every left element
+     * that lands right of it, which accounts for all inversions crossing the split.
+     */
+    @Override
+    protected Long compute() {
+      int len1 = hi1 - lo1 + 1;
+      int len2 = hi2 - lo2 + 1;
+      if (len1 + len2 < threshold) {
+        return merge(src, lo1, hi1, lo2, hi2, dst, k);
+      }
+
+      int m1;
+      int m2;
+      long crossing;
+      SplitTask left;
+      SplitTask right;
+      if (len1 >= len2) {
+        m1 = (lo1 + hi1) / 2;
+        // right run elements < src[m1] go before it; src[m1..hi1] are greater than all of them
+        m2 = lowerBound(src, lo2, hi2, src[m1]);
+        int p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m1];
+        crossing = (long) (m2 - lo2) * (hi1 - m1 + 1);
+        left = new SplitTask(src, lo1, m1 - 1, lo2, m2 - 1, dst, k, threshold);
+        right = new SplitTask(src, m1 + 1, hi1, m2, hi2, dst, p + 1, threshold);
+      } else {
+        m2 = (lo2 + hi2) / 2;
+        // left run elements <= src[m2] go before it; src[m1..hi1] are greater than src[lo2..m2]
+        m1 = upperBound(src, lo1, hi1, src[m2]);
+        int p = k + (m1 - lo1) + (m2 - lo2);
+        dst[p] = src[m2];
+        crossing = (long) (m2 - lo2 + 1) * (hi1 - m1 + 1);
+        left = new SplitTask(src, lo1, m1 - 1, lo2, m2 - 1, dst, k, threshold);
+        right = new SplitTask(src, m1, hi1, m2 + 1, hi2, dst, p + 1, threshold);
+      }
+      left.fork();
+      long rightCount = right.compute();
+      return left.join() + rightCount + crossing;
+    }
+  }
+
+  /* Sequentially merge src[lo1..hi1] and src[lo2..hi2] into dst[k..] and count split inversions */
+  private static long merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int k) {
+    long splitInversions = 0;
+    int i = lo1;
+    int j = lo2;
+    while (i <= hi1 && j <= hi2) {
+      if (src[j] < src[i]) {
+        dst[k++] = src[j++];
+        splitInversions += (hi1 - i + 1);
+      } else {
+        dst[k++] = src[i++];
+      }
+    }
+    while (i <= hi1) {
+      dst[k++] = src[i++];
+    }
+    while (j <= hi2) {
+      dst[k++] = src[j++];
+    }
+    return splitInversions;
+  }
+
+  /* Return the first index in a[lo..hi] whose element is not less than x, or hi + 1 */
+  private static int lowerBound(int[] a, int lo, int hi, int x) {
+    int end = hi + 1;
+    while (lo < end) {
+      int mid = (lo + end) >>> 1;
+      if (a[mid] < x) {
+        lo = mid + 1;
+      } else {
+        end = mid;
+      }
+    }
+    return lo;
+  }
+
+  /* Return the first index in a[lo..hi] whose element is greater than x, or hi + 1 */
+  private static int upperBound(int[] a, int lo, int hi, int x) {
+    int end = hi + 1;
+    while (lo < end) {
+      int mid = (lo + end) >>> 1;
+      if (x < a[mid]) {
+        end = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+}
@@ -0,0 +1,297 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Fork-join Strassen on flat row-major long arrays, as in FlatStrassen.
+ * The top depth levels of the recursion compute their 7 products as separate tasks, each with its
+ * own operand and product blocks; below that every task runs FlatStrassen's sequential recursion.
+ * Any dimension is accepted: n is padded with zero rows and columns up to the smallest size that
+ * halves evenly down to the cutoff, which adds fewer than 2^levels rows and columns.
+ * All workspace is allocated once per call. Forking depth d takes about 4.25n^2 longs for the first
+ * level, and 7/4 as much again for every further level, on top of FlatStrassen's n^2.
+ */
+public class ParallelStrassen {
+
+  /** Number of recursion levels whose 7 products are forked: 7 tasks. */
+  public static final int DEFAULT_DEPTH = 1;
+
+  /* Blocks of workspace a forking level takes: P1..P7, 5 left operands and 5 right operands */
+  private static final int FORK_BLOCKS = 17;
+
+  /**
+   * Test against cubicAlgo, then time against it and the sequential engines, from 1 to N threads.
+   * Usage: java -Xmx4g ParallelStrassen [n ...], e.g. 512 1024 2048 4096 8192
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 40; test++) {
+      final int n = 1 + rd.nextInt(test < 20 ? 100 : 400);
+      long[][] X = randSqrMatrix(n, rd);
+      long[][] Y = randSqrMatrix(n, rd);
+      long[][] expected = MatrixMultiplicationStrassenAlgo.cubicAlgo(X, Y);
+      long[] z = multiply(FlatStrassen.toFlat(X), FlatStrassen.toFlat(Y), n, ForkJoinPool.commonPool(),
+                          rd.nextInt(4), 1 + rd.nextInt(64));
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(FlatStrassen.fromFlat(z, n), expected)) {
+        throw new AssertionError(String.format("ParallelStrassen is Incorrect for n = %d!", n));
+      }
+    }
+
+    int[] sizes = {512, 1000, 1024};
+    if (args.length > 0) {
+      try {
+        sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+          sizes[i] = Integer.parseInt(args[i]);
+        }
+      } catch (NumberFormatException nfe) {
+        sizes = new int[] {512, 1000, 1024};
+      }
+    }
+    final int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int n : sizes) {
+      long[][] X = randSqrMatrix(n, rd);
+      long[][] Y = randSqrMatrix(n, rd);
+      long[] x = FlatStrassen.toFlat(X);
+      long[] y = FlatStrassen.toFlat(Y);
+      long start;
+      // The long[][] engines are far slower; only time them where they finish in reasonable time
+      if (n <= 2048) {
+        start = System.nanoTime();
+        MatrixMultiplicationStrassenAlgo.cubicAlgo(X, Y);
+        System.out.println(String.format("n = %4d  cubicAlgo long[][] %10.1f ms", n, (System.nanoTime() - start) / 1e6));
+      }
+      if (n <= 1024 && (n & (n - 1)) == 0) {
+        start = System.nanoTime();
+        MatrixMultiplicationStrassenAlgo.strassen(X, Y);
+        System.out.println(String.format("n = %4d  strassen long[][]  %10.1f ms", n, (System.nanoTime() - start) / 1e6));
+      }
+      X = null;
+      Y = null;
+      start = System.nanoTime();
+      long[] expected = FlatStrassen.multiply(x, y, n);
+      System.out.println(String.format("n = %4d  FlatStrassen       %10.1f ms", n, (System.nanoTime() - start) / 1e6));
+      for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        start = System.nanoTime();
+        long[] z = multiply(x, y, n, pool, DEFAULT_DEPTH, FlatStrassen.DEFAULT_CUTOFF);
+        long runtime = System.nanoTime() - start;
+        pool.shutdown();
+        for (int i = 0; i < z.length; i++) {
+          if (z[i] != expected[i]) {
+            throw new AssertionError("ParallelStrassen is Incorrect!");
+          }
+        }
+        System.out.println(String.format("n = %4d  ParallelStrassen (%2d threads) %10.1f ms", n, threads, runtime / 1e6));
+      }
+    }
+  }
+
+  /* 1, 2, 4, ... and finally maxThreads itself */
+  private static int nextThreadCount(int threads, int maxThreads) {
+    if (threads == maxThreads) {
+      return maxThreads + 1;
+    }
+    return Math.min(threads * 2, maxThreads);
+  }
+
+  /* Utility method to generate a square matrix of random integers */
+  private static long[][] randSqrMatrix(int n, Random rd) {
+    long[][] M = new long[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        M[i][j] = rd.nextInt();
+      }
+    }
+    return M;
+  }
+
+  /**
+   * Return x*y for n x n matrices on the common pool with the default depth and cutoff.
+   */
+  public static long[] multiply(long[] x, long[] y, int n) {
+    return multiply(x, y, n, ForkJoinPool.commonPool(), DEFAULT_DEPTH, FlatStrassen.DEFAULT_CUTOFF);
+  }
+
+  /**
+   * Return x*y for n x n matrices on the given pool. The top depth levels fork their 7 products,
+   * and dimensions at most cutoff are handed to the tiled kernel.
+   */
+  public static long[] multiply(long[] x, long[] y, int n, ForkJoinPool pool, int depth, int cutoff) {
+    if (x == null || y == null) {
+      throw new NullPointerException("x or y is null");
+    }
+    if (n < 0 || x.length < (long) n * n || y.length < (long) n * n) {
+      throw new IllegalArgumentException(String.format("x and y must hold %d x %d elements", n, n));
+    }
+    if (pool == null) {
+      throw new NullPointerException("The pool is null!");
+    }
+    if (depth < 0 || cutoff < 1) {
+      throw new IllegalArgumentException(String.format("depth %d must not be negative and cutoff %d must be positive",
+                                                       depth, cutoff));
+    }
+
+    final int m = paddedSize(n, cutoff);
+    long[] xp = m == n ? x : pad(x, n, m);
+    long[] yp = m == n ? y : pad(y, n, m);
+    long[] zp = new long[m * m];
+    long size = workspaceSize(m, depth, cutoff);
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(String.format("workspace of %d longs is too large; lower depth", size));
+    }
+    long[] work = new long[(int) size];
+    pool.invoke(new StrassenTask(xp, 0, m, yp, 0, m, zp, 0, m, m, work, 0, depth, cutoff));
+    if (m == n) {
+      return zp;
+    }
+    long[] z = new long[n * n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(zp, i * m, z, i * n, n);
+    }
+    return z;
+  }
+
+  /* Smallest m >= n such that halving m stays even until it is at most cutoff */
+  static int paddedSize(int n, int cutoff) {
+    int levels = 0;
+    while ((n + (1 << levels) - 1) >> levels > cutoff) {
+      levels++;
+    }
+    return ((n + (1 << levels) - 1) >> levels) << levels;
+  }
+
+  /* Copy the n x n matrix m into the top-left corner of a zero size x size matrix */
+  private static long[] pad(long[] m, int n, int size) {
+    long[] res = new long[size * size];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(m, i * n, res, i * size, n);
+    }
+    return res;
+  }
+
+  /* Number of longs of workspace the recursion on dimension n needs when the top depth levels fork */
+  static long workspaceSize(int n, int depth, int cutoff) {
+    if (depth == 0 || !FlatStrassen.recurs(n, cutoff)) {
+      return FlatStrassen.workspaceSize(n, cutoff);
+    }
+    final long h = n / 2;
+    return FORK_BLOCKS * h * h + 7 * workspaceSize(n / 2, depth - 1, cutoff);
+  }
+
+  /*
+   * Compute z = x*y for n x n views, as FlatStrassen.strassen does, forking the 7 products at the top depth levels.
+   * work[wo..] holds P1..P7, then the operand blocks, then the 7 products' own workspaces.
+   */
+  private static class StrassenTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final long[] x;
+    private final int xo;
+    private final int xs;
+    private final long[] y;
+    private final int yo;
+    private final int ys;
+    private final long[] z;
+    private final int zo;
+    private final int zs;
+    private final int n;
+    private final long[] work;
+    private final int wo;
+    private final int depth;
+    private final int cutoff;
+
+    private StrassenTask(long[] x, int xo, int xs, long[] y, int yo, int ys, long[] z, int zo, int zs, int n,
+                         long[] work, int wo, int depth, int cutoff) {
+      this.x = x;
+      this.xo = xo;
+      this.xs = xs;
+      this.y = y;
+      this.yo = yo;
+      this.ys = ys;
+      this.z = z;
+      this.zo = zo;
+      this.zs = zs;
+      this.n = n;
+      this.work = work;
+      this.wo = wo;
+      this.depth = depth;
+      this.cutoff = cutoff;
+    }
+
+    @Override
+    protected void compute() {
+      if (depth == 0 || !FlatStrassen.recurs(n, cutoff)) {
+        FlatStrassen.strassen(x, xo, xs, y, yo, ys, z, zo, zs, n, work, wo, cutoff);
+        return;
+      }
+
+      final int h = n / 2;
+      final int hh = h * h;
+      final int a = xo;
+      final int b = xo + h;
+      final int c = xo + h * xs;
+      final int d = c + h;
+      final int e = yo;
+      final int f = yo + h;
+      final int g = yo + h * ys;
+      final int hq = g + h;
+      // Blocks: products P1..P7, left operands S2, S3, S5, S6, S7, right operands T1, T4, T5, T6, T7
+      final int[] p = new int[8];
+      for (int i = 1; i <= 7; i++) {
+        p[i] = wo + (i - 1) * hh;
+      }
+      final int s2 = wo + 7 * hh;
+      final int s3 = s2 + hh;
+      final int s5 = s3 + hh;
+      final int s6 = s5 + hh;
+      final int s7 = s6 + hh;
+      final int t1 = s7 + hh;
+      final int t4 = t1 + hh;
+      final int t5 = t4 + hh;
+      final int t6 = t5 + hh;
+      final int t7 = t6 + hh;
+      final int childWork = (int) workspaceSize(h, depth - 1, cutoff);
+      final int w = wo + FORK_BLOCKS * hh;
+
+      FlatStrassen.combine(y, f, ys, y, hq, ys, -1, work, t1, h, h);
+      FlatStrassen.combine(x, a, xs, x, b, xs, 1, work, s2, h, h);
+      FlatStrassen.combine(x, c, xs, x, d, xs, 1, work, s3, h, h);
+      FlatStrassen.combine(y, g, ys, y, e, ys, -1, work, t4, h, h);
+      FlatStrassen.combine(x, a, xs, x, d, xs, 1, work, s5, h, h);
+      FlatStrassen.combine(y, e, ys, y, hq, ys, 1, work, t5, h, h);
+      FlatStrassen.combine(x, b, xs, x, d, xs, -1, work, s6, h, h);
+      FlatStrassen.combine(y, g, ys, y, hq, ys, 1, work, t6, h, h);
+      FlatStrassen.combine(x, a, xs, x, c, xs, -1, work, s7, h, h);
+      FlatStrassen.combine(y, e, ys, y, f, ys, 1, work, t7, h, h);
+      invokeAll(new StrassenTask(x, a, xs, work, t1, h, work, p[1], h, h, work, w, depth - 1, cutoff),
+                new StrassenTask(work, s2, h, y, hq, ys, work, p[2], h, h, work, w + childWork, depth - 1, cutoff),
+                new StrassenTask(work, s3, h, y, e, ys, work, p[3], h, h, work, w + 2 * childWork, depth - 1, cutoff),
+                new StrassenTask(x, d, xs, work, t4, h, work, p[4], h, h, work, w + 3 * childWork, depth - 1, cutoff),
+                new StrassenTask(work, s5, h, work, t5, h, work, p[5], h, h, work, w + 4 * childWork, depth - 1, cutoff),
+                new StrassenTask(work, s6, h, work, t6, h, work, p[6], h, h, work, w + 5 * childWork, depth - 1, cutoff),
+                new StrassenTask(work, s7, h, work, t7, h, work, p[7], h, h, work, w + 6 * childWork, depth - 1, cutoff));
+
+      // Z = [P5 + P4 - P2 + P6, P1 + P2; P3 + P4, P1 + P5 - P3 - P7]
+      final int z11 = zo;
+      final int z12 = zo + h;
+      final int z21 = zo + h * zs;
+      final int z22 = z21 + h;
+      FlatStrassen.copy(work, p[5], h, z, z11, zs, h);
+      FlatStrassen.addInto(work, p[4], h, 1, z, z11, zs, h);
+      FlatStrassen.addInto(work, p[2], h, -1, z, z11, zs, h);
+      FlatStrassen.addInto(work, p[6], h, 1, z, z11, zs, h);
+      FlatStrassen.copy(work, p[1], h, z, z12, zs, h);
+      FlatStrassen.addInto(work, p[2], h, 1, z, z12, zs, h);
+      FlatStrassen.copy(work, p[3], h, z, z21, zs, h);
+      FlatStrassen.addInto(work, p[4], h, 1, z, z21, zs, h);
+      FlatStrassen.copy(work, p[1], h, z, z22, zs, h);
+      FlatStrassen.addInto(work, p[5], h, 1, z, z22, zs, h);
+      FlatStrassen.addInto(work, p[3], h, -1, z, z22, zs, h);
+      FlatStrassen.addInto(work, p[7], h, -1, z, z22, zs, h);
+    }
+  }
+
+}
@@ -0,0 +1,482 @@
+package cdoan.stanfordalgo.week2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Strassen-Winograd matrix multiplication on flat row-major arrays, in two arithmetics:
+ * double, and long modulo a prime-sized modulus p < 2^31 for exact results on any entries.
+ * Winograd's variant takes 7 products like Strassen's but 15 additions instead of 18.
+ * Both engines use FlatStrassen's layout (quadrants are views at an offset and a row stride),
+ * its cutoff and tile size, and its workspace of 3 blocks per level, which the caller may allocate
+ * once and pass to every call.
+ *
+ * With quadrants X = [A B; C D] and Y = [E F; G H]:
+ *   S1 = C + D, S2 = S1 - A, S3 = A - C, S4 = B - S2,
+ *   T1 = F - E, T2 = H - T1, T3 = H - F, T4 = T2 - G,
+ *   P1 = AE, P2 = BG, P3 = S4 H, P4 = D T4, P5 = S1 T1, P6 = S2 T2, P7 = S3 T3,
+ *   U2 = P1 + P6, U3 = U2 + P7,
+ *   Z = [P1 + P2, U2 + P5 + P3; U3 - P4, U3 + P5].
+ */
+public class StrassenWinograd {
+
+  /**
+   * Test both engines against cubicAlgo via matrixEqual, then time them.
+   * Usage: java StrassenWinograd [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 60; test++) {
+      final int n = test < 10 ? 1 << rd.nextInt(8) : 1 + rd.nextInt(200);
+      final int cutoff = 1 + rd.nextInt(64);
+      // Entries small enough for cubicAlgo and doubles to be exact
+      long[][] X = new long[n][n];
+      long[][] Y = new long[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          X[i][j] = rd.nextInt(2001) - 1000;
+          Y[i][j] = rd.nextInt(2001) - 1000;
+        }
+      }
+      long[][] expected = MatrixMultiplicationStrassenAlgo.cubicAlgo(X, Y);
+
+      double[] z = multiply(toDouble(FlatStrassen.toFlat(X)), toDouble(FlatStrassen.toFlat(Y)), n, cutoff);
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(FlatStrassen.fromFlat(toLong(z), n), expected)) {
+        throw new AssertionError(String.format("double StrassenWinograd is Incorrect for n = %d!", n));
+      }
+
+      final long p = test % 2 == 0 ? 1_000_000_007L : Integer.MAX_VALUE;
+      long[] zMod = multiplyMod(FlatStrassen.toFlat(X), FlatStrassen.toFlat(Y), n, p, cutoff);
+      long[][] expectedMod = new long[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          expectedMod[i][j] = Math.floorMod(expected[i][j], p);
+        }
+      }
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(FlatStrassen.fromFlat(zMod, n), expectedMod)) {
+        throw new AssertionError(String.format("modular StrassenWinograd is Incorrect for n = %d!", n));
+      }
+
+      // Entries close to p, where cubicAlgo overflows: against a cubic algo reducing every product
+      long[][] big = new long[n][n];
+      long[][] big2 = new long[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          big[i][j] = p - 1 - rd.nextInt(1000);
+          big2[i][j] = p - 1 - rd.nextInt(1000);
+        }
+      }
+      zMod = multiplyMod(FlatStrassen.toFlat(big), FlatStrassen.toFlat(big2), n, p, cutoff);
+      if (!MatrixMultiplicationStrassenAlgo.matrixEqual(FlatStrassen.fromFlat(zMod, n), cubicAlgoMod(big, big2, p))) {
+        throw new AssertionError(String.format("modular StrassenWinograd is Incorrect near p for n = %d!", n));
+      }
+      // The workspace variant allocates nothing, so it takes reduced entries only
+      long[] unreduced = FlatStrassen.toFlat(big);
+      unreduced[rd.nextInt(n * n)] = -1;
+      try {
+        multiplyMod(unreduced, FlatStrassen.toFlat(big2), new long[n * n], n, p, cutoff,
+                    new long[FlatStrassen.workspaceSize(n, cutoff)]);
+        throw new AssertionError("multiplyMod with workspace accepts entries out of [0, p)!");
+      } catch (IllegalArgumentException expectedError) {}
+    }
+
+    int n = 1024;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    double[] x = new double[n * n];
+    double[] y = new double[n * n];
+    long[] xl = new long[n * n];
+    long[] yl = new long[n * n];
+    for (int i = 0; i < n * n; i++) {
+      x[i] = rd.nextDouble();
+      y[i] = rd.nextDouble();
+      xl[i] = rd.nextInt(Integer.MAX_VALUE);
+      yl[i] = rd.nextInt(Integer.MAX_VALUE);
+    }
+    // One workspace for all the calls below
+    final int cutoff = FlatStrassen.DEFAULT_CUTOFF;
+    final int size = FlatStrassen.workspaceSize(n, cutoff);
+    double[] work = new double[size];
+    long[] workMod = new long[size];
+    double[] z = new double[n * n];
+    long[] zl = new long[n * n];
+
+    long start = System.nanoTime();
+    multiply(x, y, z, n, cutoff, work);
+    long winogradTime = System.nanoTime() - start;
+    double[] cubic = new double[n * n];
+    start = System.nanoTime();
+    mulAdd(x, 0, n, y, 0, n, cubic, 0, n, n);
+    long tiledTime = System.nanoTime() - start;
+    double maxError = 0;
+    for (int i = 0; i < n * n; i++) {
+      maxError = Math.max(maxError, Math.abs(z[i] - cubic[i]));
+    }
+    start = System.nanoTime();
+    multiplyMod(xl, yl, zl, n, Integer.MAX_VALUE, cutoff, workMod);
+    long modTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    FlatStrassen.multiply(xl, yl, n, cutoff);
+    long wrappingTime = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  double: Winograd %.1f ms  tiled %.1f ms  (max abs difference %.2e)",
+                                     n, winogradTime / 1e6, tiledTime / 1e6, maxError));
+    System.out.println(String.format("n = %d  long: Winograd mod 2^31-1 %.1f ms  FlatStrassen mod 2^64 %.1f ms",
+                                     n, modTime / 1e6, wrappingTime / 1e6));
+  }
+
+  /* Utility methods for tests */
+  private static double[] toDouble(long[] m) {
+    double[] res = new double[m.length];
+    for (int i = 0; i < m.length; i++) {
+      res[i] = m[i];
+    }
+    return res;
+  }
+
+  private static long[] toLong(double[] m) {
+    long[] res = new long[m.length];
+    for (int i = 0; i < m.length; i++) {
+      res[i] = (long) m[i];
+    }
+    return res;
+  }
+
+  /* Brute-force O(n^3) running time, modulo p; X and Y hold entries in [0, p) */
+  private static long[][] cubicAlgoMod(long[][] X, long[][] Y, long p) {
+    final int n = X.length;
+    long[][] Z = new long[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        for (int k = 0; k < n; k++) {
+          Z[i][j] = (Z[i][j] + X[i][k] * Y[k][j] % p) % p;
+        }
+      }
+    }
+    return Z;
+  }
+
+  /**
+   * Return x*y for n x n double matrices; dimensions at most cutoff are handed to the tiled kernel.
+   */
+  public static double[] multiply(double[] x, double[] y, int n, int cutoff) {
+    double[] z = new double[n * n];
+    multiply(x, y, z, n, cutoff, new double[FlatStrassen.workspaceSize(Math.max(n, 0), Math.max(cutoff, 1))]);
+    return z;
+  }
+
+  /**
+   * Compute z = x*y for n x n double matrices, using work, of at least FlatStrassen.workspaceSize(n, cutoff)
+   * elements, as workspace.
+   */
+  public static void multiply(double[] x, double[] y, double[] z, int n, int cutoff, double[] work) {
+    if (x == null || y == null || z == null || work == null) {
+      throw new NullPointerException("x, y, z or work is null");
+    }
+    checkArgs(x.length, y.length, z.length, work.length, n, cutoff);
+    winograd(x, 0, n, y, 0, n, z, 0, n, n, work, 0, cutoff);
+  }
+
+  /**
+   * Return x*y modulo p for n x n matrices, 2 <= p < 2^31; entries of the result are in [0, p).
+   * x and y are left unchanged and may hold any long: they are reduced modulo p into two fresh n x n copies,
+   * so this call allocates 2n^2 longs besides the result and the workspace.
+   */
+  public static long[] multiplyMod(long[] x, long[] y, int n, long p, int cutoff) {
+    if (x == null || y == null) {
+      throw new NullPointerException("x or y is null");
+    }
+    if (n < 0 || x.length < (long) n * n || y.length < (long) n * n) {
+      throw new IllegalArgumentException(String.format("x and y must hold %d x %d elements", n, n));
+    }
+    checkModulus(p);
+    long[] xr = new long[n * n];
+    long[] yr = new long[n * n];
+    for (int i = 0; i < n * n; i++) {
+      xr[i] = Math.floorMod(x[i], p);
+      yr[i] = Math.floorMod(y[i], p);
+    }
+    long[] z = new long[n * n];
+    multiplyMod(xr, yr, z, n, p, cutoff, new long[FlatStrassen.workspaceSize(n, Math.max(cutoff, 1))]);
+    return z;
+  }
+
+  /**
+   * Compute z = x*y modulo p for n x n matrices, 2 <= p < 2^31, using work, of at least
+   * FlatStrassen.workspaceSize(n, cutoff) elements, as workspace. Nothing is allocated, so x and y must
+   * already hold entries in [0, p), e.g. reduced once with Math.floorMod for many calls.
+   */
+  public static void multiplyMod(long[] x, long[] y, long[] z, int n, long p, int cutoff, long[] work) {
+    if (x == null || y == null || z == null || work == null) {
+      throw new NullPointerException("x, y, z or work is null");
+    }
+    checkArgs(x.length, y.length, z.length, work.length, n, cutoff);
+    checkModulus(p);
+    for (int i = 0; i < n * n; i++) {
+      if (x[i] < 0 || x[i] >= p || y[i] < 0 || y[i] >= p) {
+        throw new IllegalArgumentException(String.format("x and y must hold entries in [0, %d)", p));
+      }
+    }
+    winogradMod(x, 0, n, y, 0, n, z, 0, n, n, work, 0, cutoff, p);
+  }
+
+  private static void checkModulus(long p) {
+    if (p < 2 || p > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(String.format("modulus %d out of range 2..2^31-1", p));
+    }
+  }
+
+  private static void checkArgs(int xLength, int yLength, int zLength, int workLength, int n, int cutoff) {
+    if (n < 0 || xLength < (long) n * n || yLength < (long) n * n || zLength < (long) n * n) {
+      throw new IllegalArgumentException(String.format("x, y and z must hold %d x %d elements", n, n));
+    }
+    if (cutoff < 1) {
+      throw new IllegalArgumentException(String.format("cutoff %d must be positive", cutoff));
+    }
+    if (workLength < FlatStrassen.workspaceSize(n, cutoff)) {
+      throw new IllegalArgumentException(String.format("work must hold %d elements",
+                                                       FlatStrassen.workspaceSize(n, cutoff)));
+    }
+  }
+
+  /*
+   * Compute z = x*y for n x n double views, using work[wo..] as workspace: scratch blocks S, T and P
+   * of this level and the deeper levels' after them. The quadrants of Z hold partial sums meanwhile.
+   */
+  private static void winograd(double[] x, int xo, int xs, double[] y, int yo, int ys, double[] z, int zo, int zs,
+                               int n, double[] work, int wo, int cutoff) {
+    if (!FlatStrassen.recurs(n, cutoff)) {
+      fill(z, zo, zs, n);
+      mulAdd(x, xo, xs, y, yo, ys, z, zo, zs, n);
+      return;
+    }
+
+    final int h = n / 2;
+    final int a = xo;
+    final int b = xo + h;
+    final int c = xo + h * xs;
+    final int d = c + h;
+    final int e = yo;
+    final int f = yo + h;
+    final int g = yo + h * ys;
+    final int hh = g + h;
+    final int z11 = zo;
+    final int z12 = zo + h;
+    final int z21 = zo + h * zs;
+    final int z22 = z21 + h;
+    final int s = wo;
+    final int t = wo + h * h;
+    final int p = t + h * h;
+    final int next = p + h * h;
+
+    // P1 = AE: Z11 = P1, Z12 = P1
+    winograd(x, a, xs, y, e, ys, work, p, h, h, work, next, cutoff);
+    copy(work, p, h, z, z11, zs, h);
+    copy(work, p, h, z, z12, zs, h);
+    // P2 = BG: Z11 += P2, which is final
+    winograd(x, b, xs, y, g, ys, work, p, h, h, work, next, cutoff);
+    combine(z, z11, zs, work, p, h, 1, z, z11, zs, h);
+    // P5 = S1 T1: Z22 = P5
+    combine(x, c, xs, x, d, xs, 1, work, s, h, h);
+    combine(y, f, ys, y, e, ys, -1, work, t, h, h);
+    winograd(work, s, h, work, t, h, z, z22, zs, h, work, next, cutoff);
+    // P6 = S2 T2: Z12 += P6, which makes it U2
+    combine(work, s, h, x, a, xs, -1, work, s, h, h);
+    combine(y, hh, ys, work, t, h, -1, work, t, h, h);
+    winograd(work, s, h, work, t, h, work, p, h, h, work, next, cutoff);
+    combine(z, z12, zs, work, p, h, 1, z, z12, zs, h);
+    // Z21 = U2, Z22 = U2 + P5, Z12 = U2 + P5
+    copy(z, z12, zs, z, z21, zs, h);
+    combine(z, z22, zs, z, z12, zs, 1, z, z22, zs, h);
+    copy(z, z22, zs, z, z12, zs, h);
+    // P3 = S4 H: Z12 += P3, which is final
+    combine(x, b, xs, work, s, h, -1, work, s, h, h);
+    winograd(work, s, h, y, hh, ys, work, p, h, h, work, next, cutoff);
+    combine(z, z12, zs, work, p, h, 1, z, z12, zs, h);
+    // P4 = D T4: Z21 -= P4
+    combine(work, t, h, y, g, ys, -1, work, t, h, h);
+    winograd(x, d, xs, work, t, h, work, p, h, h, work, next, cutoff);
+    combine(z, z21, zs, work, p, h, -1, z, z21, zs, h);
+    // P7 = S3 T3: Z21 += P7, Z22 += P7, which are final
+    combine(x, a, xs, x, c, xs, -1, work, s, h, h);
+    combine(y, hh, ys, y, f, ys, -1, work, t, h, h);
+    winograd(work, s, h, work, t, h, work, p, h, h, work, next, cutoff);
+    combine(z, z21, zs, work, p, h, 1, z, z21, zs, h);
+    combine(z, z22, zs, work, p, h, 1, z, z22, zs, h);
+  }
+
+  /* Tiled kernel in i-k-j order, as FlatStrassen.mulAdd: z += x*y for n x n double views */
+  private static void mulAdd(double[] x, int xo, int xs, double[] y, int yo, int ys, double[] z, int zo, int zs,
+                             int n) {
+    final int tile = FlatStrassen.TILE;
+    for (int ii = 0; ii < n; ii += tile) {
+      final int iEnd = Math.min(ii + tile, n);
+      for (int kk = 0; kk < n; kk += tile) {
+        final int kEnd = Math.min(kk + tile, n);
+        for (int jj = 0; jj < n; jj += tile) {
+          final int jEnd = Math.min(jj + tile, n);
+          for (int i = ii; i < iEnd; i++) {
+            final int xRow = xo + i * xs;
+            final int zRow = zo + i * zs;
+            for (int k = kk; k < kEnd; k++) {
+              final double xik = x[xRow + k];
+              final int yRow = yo + k * ys;
+              for (int j = jj; j < jEnd; j++) {
+                z[zRow + j] += xik * y[yRow + j];
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /* dst = a + sign*b for n x n double views, sign being 1 or -1. dst may be a or b */
+  private static void combine(double[] a, int ao, int as, double[] b, int bo, int bs, int sign,
+                              double[] dst, int dOff, int ds, int n) {
+    for (int i = 0; i < n; i++) {
+      final int aRow = ao + i * as;
+      final int bRow = bo + i * bs;
+      final int dRow = dOff + i * ds;
+      for (int j = 0; j < n; j++) {
+        dst[dRow + j] = a[aRow + j] + sign * b[bRow + j];
+      }
+    }
+  }
+
+  /* Copy the n x n double view src into dst, one System.arraycopy per row, as FlatStrassen.copy */
+  private static void copy(double[] src, int so, int ss, double[] dst, int dOff, int ds, int n) {
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(src, so + i * ss, dst, dOff + i * ds, n);
+    }
+  }
+
+  /* Set every element of the n x n double view to 0 */
+  private static void fill(double[] m, int mo, int ms, int n) {
+    for (int i = 0; i < n; i++) {
+      Arrays.fill(m, mo + i * ms, mo + i * ms + n, 0);
+    }
+  }
+
+  /*
+   * Compute z = x*y modulo p for n x n views whose entries are in [0, p), leaving entries in [0, p).
+   * Same schedule as winograd.
+   */
+  private static void winogradMod(long[] x, int xo, int xs, long[] y, int yo, int ys, long[] z, int zo, int zs,
+                                  int n, long[] work, int wo, int cutoff, long mod) {
+    if (!FlatStrassen.recurs(n, cutoff)) {
+      mulMod(x, xo, xs, y, yo, ys, z, zo, zs, n, mod);
+      return;
+    }
+
+    final int h = n / 2;
+    final int a = xo;
+    final int b = xo + h;
+    final int c = xo + h * xs;
+    final int d = c + h;
+    final int e = yo;
+    final int f = yo + h;
+    final int g = yo + h * ys;
+    final int hh = g + h;
+    final int z11 = zo;
+    final int z12 = zo + h;
+    final int z21 = zo + h * zs;
+    final int z22 = z21 + h;
+    final int s = wo;
+    final int t = wo + h * h;
+    final int p = t + h * h;
+    final int next = p + h * h;
+
+    // P1 = AE: Z11 = P1, Z12 = P1
+    winogradMod(x, a, xs, y, e, ys, work, p, h, h, work, next, cutoff, mod);
+    FlatStrassen.copy(work, p, h, z, z11, zs, h);
+    FlatStrassen.copy(work, p, h, z, z12, zs, h);
+    // P2 = BG: Z11 += P2, which is final
+    winogradMod(x, b, xs, y, g, ys, work, p, h, h, work, next, cutoff, mod);
+    combineMod(z, z11, zs, work, p, h, 1, z, z11, zs, h, mod);
+    // P5 = S1 T1: Z22 = P5
+    combineMod(x, c, xs, x, d, xs, 1, work, s, h, h, mod);
+    combineMod(y, f, ys, y, e, ys, -1, work, t, h, h, mod);
+    winogradMod(work, s, h, work, t, h, z, z22, zs, h, work, next, cutoff, mod);
+    // P6 = S2 T2: Z12 += P6, which makes it U2
+    combineMod(work, s, h, x, a, xs, -1, work, s, h, h, mod);
+    combineMod(y, hh, ys, work, t, h, -1, work, t, h, h, mod);
+    winogradMod(work, s, h, work, t, h, work, p, h, h, work, next, cutoff, mod);
+    combineMod(z, z12, zs, work, p, h, 1, z, z12, zs, h, mod);
+    // Z21 = U2, Z22 = U2 + P5, Z12 = U2 + P5
+    FlatStrassen.copy(z, z12, zs, z, z21, zs, h);
+    combineMod(z, z22, zs, z, z12, zs, 1, z, z22, zs, h, mod);
+    FlatStrassen.copy(z, z22, zs, z, z12, zs, h);
+    // P3 = S4 H: Z12 += P3, which is final
+    combineMod(x, b, xs, work, s, h, -1, work, s, h, h, mod);
+    winogradMod(work, s, h, y, hh, ys, work, p, h, h, work, next, cutoff, mod);
+    combineMod(z, z12, zs, work, p, h, 1, z, z12, zs, h, mod);
+    // P4 = D T4: Z21 -= P4
+    combineMod(work, t, h, y, g, ys, -1, work, t, h, h, mod);
+    winogradMod(x, d, xs, work, t, h, work, p, h, h, work, next, cutoff, mod);
+    combineMod(z, z21, zs, work, p, h, -1, z, z21, zs, h, mod);
+    // P7 = S3 T3: Z21 += P7, Z22 += P7, which are final
+    combineMod(x, a, xs, x, c, xs, -1, work, s, h, h, mod);
+    combineMod(y, hh, ys, y, f, ys, -1, work, t, h, h, mod);
+    winogradMod(work, s, h, work, t, h, work, p, h, h, work, next, cutoff, mod);
+    combineMod(z, z21, zs, work, p, h, 1, z, z21, zs, h, mod);
+    combineMod(z, z22, zs, work, p, h, 1, z, z22, zs, h, mod);
+  }
+
+  /*
+   * Tiled kernel: z = x*y modulo p for n x n views with entries in [0, p), p < 2^31.
+   * A product is less than p^2 < 2^62, so z accumulates modulo p^2 with one compare per step and no division:
+   * the sum of two values below p^2 stays below 2^63. Entries are reduced modulo p once at the end.
+   */
+  private static void mulMod(long[] x, int xo, int xs, long[] y, int yo, int ys, long[] z, int zo, int zs,
+                             int n, long p) {
+    final long p2 = p * p;
+    final int tile = FlatStrassen.TILE;
+    FlatStrassen.fill(z, zo, zs, n, 0);
+    for (int ii = 0; ii < n; ii += tile) {
+      final int iEnd = Math.min(ii + tile, n);
+      for (int kk = 0; kk < n; kk += tile) {
+        final int kEnd = Math.min(kk + tile, n);
+        for (int jj = 0; jj < n; jj += tile) {
+          final int jEnd = Math.min(jj + tile, n);
+          for (int i = ii; i < iEnd; i++) {
+            final int xRow = xo + i * xs;
+            final int zRow = zo + i * zs;
+            for (int k = kk; k < kEnd; k++) {
+              final long xik = x[xRow + k];
+              final int yRow = yo + k * ys;
+              for (int j = jj; j < jEnd; j++) {
+                long v = z[zRow + j] + xik * y[yRow + j];
+                z[zRow + j] = v >= p2 ? v - p2 : v;
+              }
+            }
+          }
+        }
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      final int zRow = zo + i * zs;
+      for (int j = 0; j < n; j++) {
+        z[zRow + j] %= p;
+      }
+    }
+  }
+
+  /* dst = a + sign*b modulo p for n x n views with entries in [0, p), sign being 1 or -1. dst may be a or b */
+  private static void combineMod(long[] a, int ao, int as, long[] b, int bo, int bs, int sign,
+                                 long[] dst, int dOff, int ds, int n, long p) {
+    for (int i = 0; i < n; i++) {
+      final int aRow = ao + i * as;
+      final int bRow = bo + i * bs;
+      final int dRow = dOff + i * ds;
+      for (int j = 0; j < n; j++) {
+        long v = a[aRow + j] + sign * b[bRow + j];
+        dst[dRow + j] = v >= p ? v - p : v < 0 ? v + p : v;
+      }
+    }
+  }
+
+}
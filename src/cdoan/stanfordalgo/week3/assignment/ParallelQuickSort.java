@@ -0,0 +1,125 @@
+package cdoan.stanfordalgo.week3.assignment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import cdoan.stanfordalgo.week3.assignment.QuickSort.FirstItemAsPivot;
+import cdoan.stanfordalgo.week3.assignment.QuickSort.LastItemAsPivot;
+import cdoan.stanfordalgo.week3.assignment.QuickSort.MedianOfThreeAsPivot;
+import cdoan.stanfordalgo.week3.assignment.QuickSort.PivotingRule;
+
+
+/**
+ * Fork-join QuickSort: the two sides of each partition are sorted as separate tasks,
+ * and idle workers steal them. Subarrays shorter than the threshold are sorted by QuickSort's
+ * sequential recursion. Comparisons are summed in a LongAdder, so the returned count is the
+ * same as QuickSort.sort's for the same pivoting rule.
+ */
+public class ParallelQuickSort {
+
+  /** Subarrays shorter than this are sorted sequentially. */
+  public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+  /* Read input data from file (or generate it), sort it, check counts against QuickSort, then time it */
+  public static void main(String[] args) throws IOException {
+    Integer[] input;
+    if (args.length != 0) {
+      List<Integer> list = QuickSort.readIntsFromTextFile(new File(args[0]));
+      input = list.toArray(new Integer[list.size()]);
+    } else {
+      Random random = new Random();
+      input = new Integer[1_000_000];
+      for (int i = 0; i < input.length; i++) {
+        input[i] = random.nextInt();
+      }
+    }
+
+    PivotingRule[] rules = {new FirstItemAsPivot(), new LastItemAsPivot(), new MedianOfThreeAsPivot()};
+    for (PivotingRule rule : rules) {
+      Integer[] expected = input.clone();
+      long expectedNumCmps = QuickSort.sort(expected, rule);
+      Integer[] a = input.clone();
+      long start = System.nanoTime();
+      long numCmps = sort(a, rule);
+      long runtime = System.nanoTime() - start;
+      for (int i = 0; i < a.length; i++) {
+        if (!a[i].equals(expected[i])) {
+          throw new AssertionError("The array is Not sorted!");
+        }
+      }
+      if (numCmps != expectedNumCmps) {
+        throw new AssertionError(String.format("totalNumComparisions = %d; expected = %d",
+                                               numCmps, expectedNumCmps));
+      }
+      System.out.println(String.format("totalNumComparisions %s = %d (%.1f ms)",
+                                       rule.getClass().getSimpleName(), numCmps, runtime / 1e6));
+    }
+  }
+
+  /**
+   * Sort a on the common pool with the default threshold. Return total number of comparisions.
+   */
+  public static <T extends Comparable<T>> long sort(T[] a, PivotingRule rule) {
+    return sort(a, rule, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Sort a on the given pool; subarrays shorter than threshold are sorted sequentially.
+   * Return total number of comparisions.
+   */
+  public static <T extends Comparable<T>> long sort(T[] a, PivotingRule rule, ForkJoinPool pool, int threshold) {
+    if (a == null) {
+      throw new NullPointerException("The input array is null!");
+    }
+    if (rule == null || pool == null) {
+      throw new NullPointerException("The pivoting rule or pool is null!");
+    }
+    if (threshold < 1) {
+      throw new IllegalArgumentException(String.format("threshold %d must be positive", threshold));
+    }
+
+    LongAdder numCmps = new LongAdder();
+    pool.invoke(new SortTask<>(a, 0, a.length - 1, rule, threshold, numCmps));
+    return numCmps.sum();
+  }
+
+  /* Sort a[lo..hi], adding the comparisions made into numCmps */
+  private static class SortTask<T extends Comparable<T>> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final T[] a;
+    private final int lo;
+    private final int hi;
+    private final PivotingRule rule;
+    private final int threshold;
+    private final LongAdder numCmps;
+
+    private SortTask(T[] a, int lo, int hi, PivotingRule rule, int threshold, LongAdder numCmps) {
+      this.a = a;
+      this.lo = lo;
+      this.hi = hi;
+      this.rule = rule;
+      this.threshold = threshold;
+      this.numCmps = numCmps;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo < threshold) {
+        numCmps.add(QuickSort.sort(a, lo, hi, rule));
+        return;
+      }
+
+      QuickSort.swap(a, rule.getPivot(a, lo, hi), lo);
+      int pivot = QuickSort.partition(a, lo, hi);
+      numCmps.add(hi - lo);
+      invokeAll(new SortTask<>(a, lo, pivot - 1, rule, threshold, numCmps),
+                new SortTask<>(a, pivot + 1, hi, rule, threshold, numCmps));
+    }
+  }
+
+}
@@ -10,6 +10,9 @@ import java.util.Scanner;
 
 
 public class QuickSort {
+  
+  /* Subarrays shorter than this use median-of-three instead of the ninther */
+  private static final int NINTHER_CUTOFF = 40;
 
   /* Read input data from file, sort it, then assert */
   public static void main(String[] args) throws IOException {
@@ -37,10 +40,25 @@ public class QuickSort {
     totalNumComparisions = sort(a, rule);
     assert isSorted(a);
     System.out.println("totalNumComparisions MedianOfThreeAsPivot = " + totalNumComparisions);
+    
+    a = list.toArray(new Integer[list.size()]);
+    totalNumComparisions = sort(a, rule, new ThreeWayPartitioning());
+    assert isSorted(a);
+    System.out.println("totalNumComparisions MedianOfThreeAsPivot ThreeWayPartitioning = " + totalNumComparisions);
+    
+    a = list.toArray(new Integer[list.size()]);
+    totalNumComparisions = sort(a, rule, new DualPivotPartitioning());
+    assert isSorted(a);
+    System.out.println("totalNumComparisions MedianOfThreeAsPivot DualPivotPartitioning = " + totalNumComparisions);
+    
+    a = list.toArray(new Integer[list.size()]);
+    totalNumComparisions = sort(a, new NintherAsPivot(), new IntrosortPartitioning());
+    assert isSorted(a);
+    System.out.println("totalNumComparisions NintherAsPivot IntrosortPartitioning = " + totalNumComparisions);
   }
   
   /* Utility method for preparing test data */
-  private static List<Integer> readIntsFromTextFile(File file) throws IOException {
+  static List<Integer> readIntsFromTextFile(File file) throws IOException {
     List<Integer> list = new ArrayList<>();
     Scanner scanner = new Scanner(file);
     while (scanner.hasNextInt()) {
@@ -58,8 +76,22 @@ public class QuickSort {
     return sort(a, 0, a.length - 1, rule);
   }
   
+  /**
+   * Sort a using the given pivoting rule and partitioning scheme. Return total number of comparisions.
+   */
+  public static <T extends Comparable<T>> long sort(T[] a, PivotingRule rule, PartitioningScheme scheme) {
+    if (a == null) {
+      throw new NullPointerException("The input array is null!");
+    }
+    if (rule == null || scheme == null) {
+      throw new NullPointerException("The pivoting rule or partitioning scheme is null!");
+    }
+
+    return scheme.sort(a, 0, a.length - 1, rule);
+  }
+  
   /* Return total number of comparisions */
-  private static <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
+  static <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
     // Base case: return when subarray has length at most 1
     if (hi <= lo) {
       return 0;
@@ -82,7 +114,7 @@ public class QuickSort {
    * The pivot p is a[lo]. As scan through a[lo+1..hi] maintains the invariant below:
    * Within the seen/scanned elements all of those less than p proceed all of those greater than p.
    */
-  private static <T extends Comparable<T>> int partition(T[] a, int lo, int hi) {
+  static <T extends Comparable<T>> int partition(T[] a, int lo, int hi) {
     T p = a[lo];
     int finalIndexOfPivot = lo;
     for (int i = lo + 1; i <= hi; ++i) {
@@ -95,6 +127,140 @@ public class QuickSort {
   }
   
   
+  /**
+   * Recursively sorts a[lo..hi] choosing pivots with rule, and returns total number of comparisions.
+   */
+  public interface PartitioningScheme {
+    <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule);
+  }
+  
+  /**
+   * The single-pivot partition used by sort(a, rule).
+   */
+  public static class SinglePivotPartitioning implements PartitioningScheme {
+    public <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
+      return QuickSort.sort(a, lo, hi, rule);
+    }
+  }
+  
+  /**
+   * Dijkstra's 3-way partition: a[lo..lt-1] < pivot = a[lt..gt] < a[gt+1..hi].
+   * Keys equal to the pivot are excluded from both recursive calls, so inputs with
+   * many duplicates take close to linear time.
+   */
+  public static class ThreeWayPartitioning implements PartitioningScheme {
+    public <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
+      if (hi <= lo) {
+        return 0;
+      }
+      
+      swap(a, rule.getPivot(a, lo, hi), lo);
+      T p = a[lo];
+      long numCmps = 0;
+      int lt = lo;
+      int gt = hi;
+      for (int i = lo + 1; i <= gt;) {
+        numCmps++;
+        if (less(a[i], p)) {
+          swap(a, lt++, i++);
+          continue;
+        }
+        numCmps++;
+        if (less(p, a[i])) {
+          swap(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      
+      return numCmps + sort(a, lo, lt - 1, rule) + sort(a, gt + 1, hi, rule);
+    }
+  }
+  
+  /**
+   * Dual-pivot partition around p = a[lo] <= q = a[hi], where p is chosen by the pivoting rule:
+   * a[lo..lt-1] < p <= a[lt..gt] <= q < a[gt+1..hi].
+   * The middle part is skipped when p equals q, since it then holds only keys equal to p.
+   */
+  public static class DualPivotPartitioning implements PartitioningScheme {
+    public <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
+      if (hi <= lo) {
+        return 0;
+      }
+      
+      swap(a, rule.getPivot(a, lo, hi), lo);
+      long numCmps = 1;
+      if (less(a[hi], a[lo])) {
+        swap(a, lo, hi);
+      }
+      T p = a[lo];
+      T q = a[hi];
+      int lt = lo + 1;
+      int gt = hi - 1;
+      for (int i = lo + 1; i <= gt;) {
+        numCmps++;
+        if (less(a[i], p)) {
+          swap(a, lt++, i++);
+          continue;
+        }
+        numCmps++;
+        if (less(q, a[i])) {
+          swap(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      swap(a, lo, --lt);
+      swap(a, hi, ++gt);
+      
+      numCmps += sort(a, lo, lt - 1, rule) + sort(a, gt + 1, hi, rule);
+      numCmps++;
+      if (less(a[lt], a[gt])) {
+        numCmps += sort(a, lt + 1, gt - 1, rule);
+      }
+      return numCmps;
+    }
+  }
+  
+  
+  /**
+   * Introsort: single-pivot quicksort whose recursion depth is capped at 2*floor(lg n).
+   * A subarray reached beyond the cap is heapsorted instead, which bounds the running time by O(nlogn)
+   * whatever the pivoting rule. Only the smaller side of each partition is recursed on
+   * and the larger one is handled by the loop, so the stack depth is at most lg n as well.
+   */
+  public static class IntrosortPartitioning implements PartitioningScheme {
+    public <T extends Comparable<T>> long sort(T[] a, int lo, int hi, PivotingRule rule) {
+      if (hi <= lo) {
+        return 0;
+      }
+      int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(hi - lo + 1));
+      return introsort(a, lo, hi, rule, depthLimit);
+    }
+    
+    private <T extends Comparable<T>> long introsort(T[] a, int lo, int hi, PivotingRule rule, int depthLimit) {
+      long totalNumCmps = 0;
+      while (hi > lo) {
+        if (depthLimit-- == 0) {
+          return totalNumCmps + heapSort(a, lo, hi);
+        }
+        
+        swap(a, rule.getPivot(a, lo, hi), lo);
+        int pivot = partition(a, lo, hi);
+        totalNumCmps += hi - lo;
+        if (pivot - lo < hi - pivot) {
+          totalNumCmps += introsort(a, lo, pivot - 1, rule, depthLimit);
+          lo = pivot + 1;
+        } else {
+          totalNumCmps += introsort(a, pivot + 1, hi, rule, depthLimit);
+          hi = pivot - 1;
+        }
+      }
+      return totalNumCmps;
+    }
+  }
+  
+  
   public interface PivotingRule {
     <T extends Comparable<T>> int getPivot(T[] a, int lo, int hi);
   }
@@ -128,13 +294,82 @@ public class QuickSort {
   }
   
   
+  /**
+   * Tukey's ninther, the median of the medians of three evenly spaced triples, on subarrays
+   * of at least NINTHER_CUTOFF elements; median of a[lo], a[(lo+hi)/2] and a[hi] on shorter ones.
+   */
+  public static class NintherAsPivot implements PivotingRule {
+    public <T extends Comparable<T>> int getPivot(T[] a, int lo, int hi) {
+      int mid = (lo + hi) / 2;
+      if (hi - lo + 1 < NINTHER_CUTOFF) {
+        return median3(a, lo, mid, hi);
+      }
+      int step = (hi - lo + 1) / 8;
+      int m1 = median3(a, lo, lo + step, lo + 2 * step);
+      int m2 = median3(a, mid - step, mid, mid + step);
+      int m3 = median3(a, hi - 2 * step, hi - step, hi);
+      return median3(a, m1, m2, m3);
+    }
+  }
+  
+  
+  /* Helper method returning the index of the median among a[i], a[j] and a[k] */
+  private static <T extends Comparable<T>> int median3(T[] a, int i, int j, int k) {
+    if (less(a[i], a[j])) {
+      if (less(a[j], a[k])) {
+        return j;
+      }
+      return less(a[i], a[k]) ? k : i;
+    }
+    if (less(a[k], a[j])) {
+      return j;
+    }
+    return less(a[k], a[i]) ? k : i;
+  }
+  
+  /* Heapsort a[lo..hi] and return number of comparisions */
+  private static <T extends Comparable<T>> long heapSort(T[] a, int lo, int hi) {
+    final int n = hi - lo + 1;
+    long numCmps = 0;
+    for (int k = n / 2 - 1; k >= 0; k--) {
+      numCmps += sink(a, lo, k, n);
+    }
+    for (int size = n - 1; size > 0; size--) {
+      swap(a, lo, lo + size);
+      numCmps += sink(a, lo, 0, size);
+    }
+    return numCmps;
+  }
+  
+  /* Sink k-th node of the max-heap stored in a[lo..lo+size-1] and return number of comparisions */
+  private static <T extends Comparable<T>> long sink(T[] a, int lo, int k, int size) {
+    long numCmps = 0;
+    while (2 * k + 1 < size) {
+      int child = 2 * k + 1;
+      if (child + 1 < size) {
+        numCmps++;
+        if (less(a[lo + child], a[lo + child + 1])) {
+          child++;
+        }
+      }
+      numCmps++;
+      if (!less(a[lo + k], a[lo + child])) {
+        break;
+      }
+      swap(a, lo + k, lo + child);
+      k = child;
+    }
+    return numCmps;
+  }
+  
+  
   /* Helper method for testing if v is less than w */
   private static <T extends Comparable<T>> boolean less(T v, T w) {
     return v.compareTo(w) < 0;
   }
   
   /* Helper method for exchanging ith and jth elements */
-  private static <T> void swap(T[] a, int i, int j) {
+  static <T> void swap(T[] a, int i, int j) {
     T tmp = a[i];
     a[i] = a[j];
     a[j] = tmp;
@@ -76,9 +76,9 @@ public class DSelectArray {
    * 3a) If pivot is k-th smallest then return it.
    * 3b) Otherwise, recur either on Left or Right half of pivot depending whether it > or < k-th smallest.
    */
-  private static <T extends Comparable<T>> T kthSmallest(T[] a, int lo, int len, 
-                                                         int k, T[] medians, 
-                                                         boolean recurringToComputePivot) {
+  static <T extends Comparable<T>> T kthSmallest(T[] a, int lo, int len, 
+                                                 int k, T[] medians, 
+                                                 boolean recurringToComputePivot) {
     // Base case
     if (len == 1) {
       // Return either "median of medians" pivot or k-th smallest value (unlucky case)
@@ -157,7 +157,7 @@ public class DSelectArray {
    * Helper method to sort subarray a[lo..lo+len-1] using InsertionSort algo
    * Invariant: left (i.e. seen elements) already sorted
    */
-  private static <T extends Comparable<T>> void insertionSort(T[] a, int lo, int len) {
+  static <T extends Comparable<T>> void insertionSort(T[] a, int lo, int len) {
     for (int i = lo + 1; i < lo + len; i++) {
       int pos = i;
       while (pos > lo && less(a[pos], a[pos - 1])) {
@@ -3,17 +3,24 @@ package cdoan.stanfordalgo.week4;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.RandomAccess;
 
 
 /**
  * Implements Deterministic Select algo, which computes k-th smallest element in the given list in O(n) time.
+ * RandomAccess lists (e.g. ArrayList) are partitioned in place through get/set without copying them;
+ * other lists (e.g. LinkedList), whose get/set are O(n), are streamed once into an array instead.
+ * The kthSmallestInt/Long/Double variants stream the list once into a primitive buffer and select there.
  */
 public class DSelectList {
-  
+
   /**
-   * Run tests.
+   * Run tests, then time ArrayList vs LinkedList inputs.
+   * Usage: java DSelectList [n]
    */
   public static void main(String[] args) {
     List<Integer> input = randomIntegerList();
@@ -22,14 +29,58 @@ public class DSelectList {
     Arrays.sort(sorted);
     for (int k = 1; k <= n; k++) {
       Collections.shuffle(input);
+      List<Integer> linked = new LinkedList<>(input);
+      List<Integer> snapshot = new ArrayList<>(linked);
       Integer actual = kthSmallest(input, k);
-      if (!actual.equals(sorted[k - 1])) {
-        throw new AssertionError(String.format("computed %d-th smallest = %d; expected = %d", 
+      if (!actual.equals(sorted[k - 1]) || !kthSmallest(linked, k).equals(sorted[k - 1])
+          || kthSmallestInt(linked, k) != sorted[k - 1]
+          || kthSmallestLong(toLongs(linked), k) != sorted[k - 1]
+          || kthSmallestDouble(toDoubles(linked), k) != sorted[k - 1]) {
+        throw new AssertionError(String.format("computed %d-th smallest = %d; expected = %d",
                                                k, actual, sorted[k - 1]));
       }
+      if (!linked.equals(snapshot)) {
+        throw new AssertionError("The LinkedList was modified!");
+      }
+    }
+
+    int benchN = 2_000_000;
+    if (args.length > 0) {
+      try {
+        benchN = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    Random rd = new Random();
+    Integer[] boxed = new Integer[benchN];
+    for (int i = 0; i < benchN; i++) {
+      boxed[i] = rd.nextInt();
+    }
+    final int k = (int) (benchN * 0.99);
+    Integer expected = DSelectArray.kthSmallest(boxed.clone(), k, new Integer[benchN / 5 + 1]);
+    List<Integer> arrayList = new ArrayList<>(Arrays.asList(boxed));
+    List<Integer> linkedList = new LinkedList<>(Arrays.asList(boxed));
+    long start = System.nanoTime();
+    Integer fromArrayList = kthSmallest(arrayList, k);
+    long arrayListTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    Integer fromLinkedList = kthSmallest(linkedList, k);
+    long linkedListTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    int intFromArrayList = kthSmallestInt(arrayList, k);
+    long intArrayListTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    int intFromLinkedList = kthSmallestInt(linkedList, k);
+    long intLinkedListTime = System.nanoTime() - start;
+    if (!fromArrayList.equals(expected) || !fromLinkedList.equals(expected)
+        || intFromArrayList != expected || intFromLinkedList != expected) {
+      throw new AssertionError(String.format("computed wrong %d-th smallest; expected = %d", k, expected));
     }
+    System.out.println(String.format("n = %d  kthSmallest: ArrayList %.1f ms  LinkedList %.1f ms",
+                                     benchN, arrayListTime / 1e6, linkedListTime / 1e6));
+    System.out.println(String.format("n = %d  kthSmallestInt: ArrayList %.1f ms  LinkedList %.1f ms",
+                                     benchN, intArrayListTime / 1e6, intLinkedListTime / 1e6));
   }
-  
+
   /* Utility method for test data */
   private static List<Integer> randomIntegerList() {
     Random rd = new Random();
@@ -42,10 +93,81 @@ public class DSelectList {
     return res;
   }
 
+  /* Utility methods to convert test data */
+  private static List<Long> toLongs(List<Integer> a) {
+    List<Long> res = new LinkedList<>();
+    for (Integer x : a) {
+      res.add((long) x);
+    }
+    return res;
+  }
+
+  private static List<Double> toDoubles(List<Integer> a) {
+    List<Double> res = new LinkedList<>();
+    for (Integer x : a) {
+      res.add((double) x);
+    }
+    return res;
+  }
+
   /**
    * Compute and return k-th smallest element (order statistic).
+   * A RandomAccess list is reordered in place; any other list is left unchanged.
    */
   public static <T extends Comparable<T>> T kthSmallest(List<T> a, int k) {
+    final int n = checkArgs(a, k);
+    int numGroups = n % 5 != 0 ? (n / 5) + 1 : n / 5;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    T[] medians = (T[]) new Comparable[numGroups];
+    if (a instanceof RandomAccess) {
+      return kthSmallest(a, 0, n, k, medians);
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    T[] elements = a.toArray((T[]) new Comparable[n]);
+    return DSelectArray.kthSmallest(elements, 0, n, k, medians, false);
+  }
+
+  /**
+   * Compute and return k-th smallest element of a list of Integers, unboxed once into an int array.
+   * a is left unchanged.
+   */
+  public static int kthSmallestInt(List<Integer> a, int k) {
+    int[] buffer = new int[checkArgs(a, k)];
+    int i = 0;
+    for (Iterator<Integer> it = a.iterator(); it.hasNext();) {
+      buffer[i++] = it.next();
+    }
+    return IntroSelect.kthSmallest(buffer, k);
+  }
+
+  /**
+   * Compute and return k-th smallest element of a list of Longs, unboxed once into a long array.
+   * a is left unchanged.
+   */
+  public static long kthSmallestLong(List<Long> a, int k) {
+    long[] buffer = new long[checkArgs(a, k)];
+    int i = 0;
+    for (Iterator<Long> it = a.iterator(); it.hasNext();) {
+      buffer[i++] = it.next();
+    }
+    return IntroSelect.kthSmallest(buffer, k);
+  }
+
+  /**
+   * Compute and return k-th smallest element of a list of Doubles, unboxed once into a double array.
+   * a is left unchanged; it must not contain NaN.
+   */
+  public static double kthSmallestDouble(List<Double> a, int k) {
+    double[] buffer = new double[checkArgs(a, k)];
+    int i = 0;
+    for (Iterator<Double> it = a.iterator(); it.hasNext();) {
+      buffer[i++] = it.next();
+    }
+    return IntroSelect.kthSmallest(buffer, k);
+  }
+
+  /* Validate arguments and return the size of a */
+  private static int checkArgs(List<?> a, int k) {
     if (a == null || a.size() == 0) {
       throw new IllegalArgumentException("null or empty list a");
     }
@@ -53,110 +175,101 @@ public class DSelectList {
     if (k < 1 || k > n) {
       throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
     }
-    return kthSmallest(a, 0, n, k, false);
+    return n;
   }
-  
+
   /*
-   * Recursive method to compute the k-th smallest element in subarray a[lo..lo+len-1].
-   * recurringToComputePivot indecates whether the method is being recursively called to compute "median of medians".
-   * 
+   * Compute the k-th smallest element in the RandomAccess sublist a[lo..lo+len-1].
+   * medians is used to store medians of groups of 5 elements from the sublist.
+   *
    * 1 ) Compute a garanteed good pivot based on "Median of Medians" idea.
-   * 2 ) Partition input array around pivot.
+   * 2 ) Partition the sublist around pivot.
    * 3a) If pivot is k-th smallest then return it.
-   * 3b) Otherwise, recur either on Left or Right half of pivot depending whether it > or < k-th smallest.
+   * 3b) Otherwise, continue either on Left or Right half of pivot depending whether it > or < k-th smallest.
    */
-  private static <T extends Comparable<T>> T kthSmallest(List<T> a, int lo, int len, 
-                                                         int k, 
-                                                         boolean recurringToComputePivot) {
-    // Base case
-    if (len == 1) {
-      // Return either "median of medians" pivot or k-th smallest value (unlucky case)
-      return a.get(lo);
-    }
-    
-    
-    /* 
-     * 1) Compute "median of medians" pivot
-     *  a) Logically divide given array range into groups of 5 elements then sort them
-     *  b) Copy groups' medians into medians
-     *  c) Recur to compute median of medians
-     */
-    int numGroups = len % 5 != 0 ? (len / 5) + 1 : len / 5;
-    // medians is used to store medians of groups of 5 elements from sublist a[lo..lo+len-1]
-    List<T> medians = new ArrayList<>(numGroups);
-    int group = 1;
-    int start = lo;
-    for (; group * 5 <= len; group++, start += 5) {
-      insertionSort(a, start, 5);
-      medians.add(a.get(start + 2));
-    }
-    int numRemainingElements = len - (group - 1) * 5;
-    if (numRemainingElements > 0) {
-      insertionSort(a, start, numRemainingElements);
-      medians.add(a.get(start + (numRemainingElements / 2)));
-    }
-    // Recur to compute "median of medians" pivot
-    T pivot = kthSmallest(medians, 0, numGroups, (numGroups + 1) / 2, true);
-    if (recurringToComputePivot) {
-      return pivot;
-    }
+  private static <T extends Comparable<T>> T kthSmallest(List<T> a, int lo, int len, int k, T[] medians) {
+    while (len > 1) {
+      /*
+       * 1) Compute "median of medians" pivot
+       *  a) Logically divide given sublist into groups of 5 elements then sort them
+       *  b) Copy groups' medians into medians
+       *  c) Compute median of medians with DSelectArray, which works on medians in place
+       */
+      int group = 1;
+      int start = lo;
+      for (; group * 5 <= len; group++, start += 5) {
+        insertionSort(a, start, 5);
+        medians[group - 1] = a.get(start + 2);
+      }
+      int numRemainingElements = len - (group - 1) * 5;
+      if (numRemainingElements > 0) {
+        insertionSort(a, start, numRemainingElements);
+        medians[group - 1] = a.get(start + (numRemainingElements / 2));
+      }
+      int numGroups = len % 5 != 0 ? (len / 5) + 1 : len / 5;
+      T pivot = DSelectArray.kthSmallest(medians, 0, numGroups, (numGroups + 1) / 2, medians, true);
+
+      /*
+       * 2) Partition the given sublist around pivot.
+       *    Since pivot's index is unkown we use 3-way partitioning.
+       *    Maintain invariant a[lo..lt-1] < a[lt..gt] = pivot < a[gt+1..hi].
+       */
+      int lt = lo;
+      int gt = lo + len - 1;
+      for (int i = lo; i <= gt;) {
+        T ai = a.get(i);
+        if (less(ai, pivot)) {
+          swap(a, lt++, i++, ai);
+        } else if (less(pivot, ai)) {
+          swap(a, gt--, i, ai);
+        } else {
+          i++;
+        }
+      }
 
-    /*
-     * 2) Partition the given subarray around pivot.
-     *    Since pivot's index is unkown we use 3-way partitioning.
-     *    Maintain invariant a[lo..lt-1] < a[lt..gt] = pivot < a[gt+1..hi].
-     */
-    int lt = lo;
-    int gt = lo + len - 1;
-    for (int i = lo; i <= gt;) {
-      if (less(a.get(i), pivot)) {
-        swap(a, lt++, i++);
-      } else if (less(pivot, a.get(i))) {
-        swap(a, i, gt--);
+      /*
+       * 3) If k-th smallest is in pivot's range a[lt..gt] then return it.
+       *    Otherwise, continue either on Left or Right half of its range.
+       */
+      int orderStatisticLo = lt - lo + 1;
+      int orderStatisticHi = gt - lo + 1;
+      if (orderStatisticLo <= k && k <= orderStatisticHi) {
+        return pivot;
+      }
+      if (orderStatisticLo > k) {
+        len = orderStatisticLo - 1;
       } else {
-        i++;
+        lo = gt + 1;
+        len -= orderStatisticHi;
+        k -= orderStatisticHi;
       }
     }
-    
-    /*
-     * 3) If k-th smallest is in pivot's range a[lt..gt] then return it.
-     *    Otherwise, recur either on Left or Right half of its range.
-     */
-    int orderStatisticLo = lt - lo + 1;
-    int orderStatisticHi = gt - lo + 1;
-    if (orderStatisticLo <= k && k <= orderStatisticHi) {
-      return pivot;
-    }
-    if (orderStatisticLo > k) {
-      return kthSmallest(a, lo, orderStatisticLo - 1, k, false);
-    }    
-    return kthSmallest(a, gt + 1, len - orderStatisticHi, k - orderStatisticHi, false);
+    return a.get(lo);
   }
-  
+
   /* Helper method to check if v < w */
   private static <T extends Comparable<T>> boolean less(T v, T w) {
     return v.compareTo(w) < 0;
   }
-  
-  /* Helper method to swap i-th and j-th elements */
-  private static <T extends Comparable<T>> void swap(List<T> a, int i, int j) {
-    T ai = a.get(i);
-    a.set(i, a.get(j));
-    a.set(j, ai);
+
+  /* Helper method to swap i-th and j-th elements, given that a[j] is aj */
+  private static <T extends Comparable<T>> void swap(List<T> a, int i, int j, T aj) {
+    a.set(j, a.set(i, aj));
   }
-  
+
   /*
    * Helper method to sort sublist a[lo..lo+len-1] using InsertionSort algo
    * Invariant: left (i.e. seen elements) already sorted
    */
   private static <T extends Comparable<T>> void insertionSort(List<T> a, int lo, int len) {
     for (int i = lo + 1; i < lo + len; i++) {
+      T ai = a.get(i);
       int pos = i;
-      while (pos > lo && less(a.get(pos), a.get(pos - 1))) {
-        swap(a, pos, pos - 1);
-        pos--;
+      for (; pos > lo && less(ai, a.get(pos - 1)); pos--) {
+        a.set(pos, a.get(pos - 1));
       }
+      a.set(pos, ai);
     }
   }
-  
+
 }
@@ -0,0 +1,93 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.Arrays;
+
+
+/**
+ * Exact quantiles: keeps every value and answers queries with RSelect, so memory grows with the stream.
+ */
+public class ExactQuantiles implements QuantileEstimator {
+  private Double[] values = new Double[16];
+  private int size;
+
+  @Override
+  public void add(double x) {
+    if (Double.isNaN(x)) {
+      throw new IllegalArgumentException("NaN value");
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, Math.max(16, 2 * size));
+    }
+    values[size++] = x;
+  }
+
+  @Override
+  public long count() {
+    return size;
+  }
+
+  @Override
+  public double quantile(double q) {
+    return RSelect.kthSmallest(trimmedValues(), (int) rank(q, size));
+  }
+
+  /**
+   * Get the qs[i]-quantile for every i, all with a single RSelect pass.
+   */
+  @Override
+  public double[] quantiles(double... qs) {
+    int[] ks = new int[qs.length];
+    for (int i = 0; i < qs.length; i++) {
+      ks[i] = (int) rank(qs[i], size);
+    }
+    Double[] selected = RSelect.kthSmallest(trimmedValues(), ks);
+    double[] res = new double[qs.length];
+    for (int i = 0; i < qs.length; i++) {
+      res[i] = selected[i];
+    }
+    return res;
+  }
+
+  @Override
+  public void merge(QuantileEstimator other) {
+    if (!(other instanceof ExactQuantiles)) {
+      throw new IllegalArgumentException("can only merge another ExactQuantiles");
+    }
+    ExactQuantiles that = (ExactQuantiles) other;
+    int otherSize = that.size;
+    if (size + otherSize > values.length) {
+      values = Arrays.copyOf(values, Math.max(2 * values.length, size + otherSize));
+    }
+    System.arraycopy(that.values, 0, values, size, otherSize);
+    size += otherSize;
+  }
+
+  /* Shrink values to exactly the added ones, since RSelect works on whole arrays */
+  private Double[] trimmedValues() {
+    if (values.length != size) {
+      values = Arrays.copyOf(values, size);
+    }
+    return values;
+  }
+
+  /*
+   * 1-based rank of the q-quantile among n values: ceil(q*n), except that q*n within its rounding error
+   * of an integer is that integer, so that 0.07 * 100 = 7.000000000000001 gives rank 7, not 8
+   */
+  static long rank(double q, long n) {
+    if (n == 0) {
+      throw new IllegalStateException("no values added");
+    }
+    if (!(q >= 0 && q <= 1)) {
+      throw new IllegalArgumentException(String.format("q %s out of range 0..1", q));
+    }
+    final double x = q * n;
+    long r = (long) Math.ceil(x);
+    // q is off by up to ulp(q)/2, scaled by n, and the product by up to ulp(x)/2
+    if (r > 1 && r - 1 >= x - Math.ulp(q) * n - Math.ulp(x)) {
+      r--;
+    }
+    return Math.max(1, r);
+  }
+
+}
@@ -0,0 +1,316 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Introselect on primitive arrays, which computes k-th smallest element without boxing.
+ * It runs Randomized Select with in-place 3-way partitioning, and switches to the "median of medians"
+ * pivot of Deterministic Select when the recursion gets too deep, so the worst case stays O(n).
+ * Nothing is allocated: the recursion is a loop and group medians are gathered in place.
+ * double keys must not be NaN.
+ */
+public class IntroSelect {
+
+  /**
+   * Run tests, then compare against RSelect on boxed input.
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 200; test++) {
+      final int n = 1 + rd.nextInt(3000);
+      final int bound = test % 2 == 0 ? 10 : n * 10;
+      int[] ints = new int[n];
+      long[] longs = new long[n];
+      double[] doubles = new double[n];
+      for (int i = 0; i < n; i++) {
+        ints[i] = rd.nextInt(bound);
+        longs[i] = (long) ints[i] << 32;
+        doubles[i] = ints[i] / 7.0;
+      }
+      int[] sorted = ints.clone();
+      Arrays.sort(sorted);
+      for (int k = 1; k <= n; k += 1 + rd.nextInt(10)) {
+        if (kthSmallest(ints, k) != sorted[k - 1]
+            || kthSmallest(longs, k) != (long) sorted[k - 1] << 32
+            || kthSmallest(doubles, k) != sorted[k - 1] / 7.0) {
+          throw new AssertionError(String.format("computed wrong %d-th smallest", k));
+        }
+      }
+    }
+
+    final int n = 5_000_000;
+    int[] input = new int[n];
+    Integer[] boxed = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = rd.nextInt();
+      boxed[i] = input[i];
+    }
+    long start = System.nanoTime();
+    int p99 = kthSmallest(input, (int) (n * 0.99));
+    long primitiveTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    Integer expected = RSelect.kthSmallest(boxed, (int) (n * 0.99));
+    long boxedTime = System.nanoTime() - start;
+    if (p99 != expected) {
+      throw new AssertionError(String.format("computed p99 = %d; expected = %d", p99, expected));
+    }
+    System.out.println(String.format("n = %d  p99: IntroSelect int[] %.1f ms  RSelect Integer[] %.1f ms",
+                                     n, primitiveTime / 1e6, boxedTime / 1e6));
+  }
+
+  /**
+   * Compute k-th smallest element in given int array; a is reordered in place.
+   */
+  public static int kthSmallest(int[] a, int k) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    final int n = a.length;
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+    }
+    return a[select(a, 0, n - 1, k - 1)];
+  }
+
+  /**
+   * Compute k-th smallest element in given long array; a is reordered in place.
+   */
+  public static long kthSmallest(long[] a, int k) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    final int n = a.length;
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+    }
+    return a[select(a, 0, n - 1, k - 1)];
+  }
+
+  /**
+   * Compute k-th smallest element in given double array; a is reordered in place.
+   */
+  public static double kthSmallest(double[] a, int k) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    final int n = a.length;
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+    }
+    return a[select(a, 0, n - 1, k - 1)];
+  }
+
+  /*
+   * Rearrange a[lo..hi] so that a[rank] holds the element it would hold if a[lo..hi] were sorted,
+   * and return rank. Random pivots are used for the first 2*floor(lg n) rounds, "median of medians"
+   * pivots afterwards.
+   */
+  private static int select(int[] a, int lo, int hi, int rank) {
+    int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(hi - lo + 1));
+    while (lo < hi) {
+      int pivotIndex = depthLimit-- > 0
+          ? lo + ThreadLocalRandom.current().nextInt(hi - lo + 1)
+          : medianOfMedians(a, lo, hi);
+      int pivot = a[pivotIndex];
+      /* Maintain invariant a[lo..lt-1] < pivot = a[lt..i-1] and a[gt+1..hi] > pivot */
+      int lt = lo;
+      int gt = hi;
+      for (int i = lo; i <= gt;) {
+        if (a[i] < pivot) {
+          swap(a, lt++, i++);
+        } else if (a[i] > pivot) {
+          swap(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      if (rank < lt) {
+        hi = lt - 1;
+      } else if (rank > gt) {
+        lo = gt + 1;
+      } else {
+        return rank;
+      }
+    }
+    return rank;
+  }
+
+  /*
+   * Return the index of the "median of medians" of a[lo..hi]: sort groups of 5 elements,
+   * move each group's median to the front of the range, then select the median of those medians.
+   */
+  private static int medianOfMedians(int[] a, int lo, int hi) {
+    int numGroups = 0;
+    for (int start = lo; start <= hi; start += 5) {
+      int end = Math.min(start + 4, hi);
+      insertionSort(a, start, end);
+      swap(a, lo + numGroups, start + (end - start + 1) / 2);
+      numGroups++;
+    }
+    return select(a, lo, lo + numGroups - 1, lo + (numGroups - 1) / 2);
+  }
+
+  /* Helper method to sort a[lo..hi] using InsertionSort algo */
+  private static void insertionSort(int[] a, int lo, int hi) {
+    for (int i = lo + 1; i <= hi; i++) {
+      int x = a[i];
+      int pos = i;
+      while (pos > lo && x < a[pos - 1]) {
+        a[pos] = a[pos - 1];
+        pos--;
+      }
+      a[pos] = x;
+    }
+  }
+
+  /* Helper method to swap i-th and j-th elements */
+  private static void swap(int[] a, int i, int j) {
+    int ai = a[i];
+    a[i] = a[j];
+    a[j] = ai;
+  }
+
+  /*
+   * Rearrange a[lo..hi] so that a[rank] holds the element it would hold if a[lo..hi] were sorted,
+   * and return rank. Random pivots are used for the first 2*floor(lg n) rounds, "median of medians"
+   * pivots afterwards.
+   */
+  private static int select(long[] a, int lo, int hi, int rank) {
+    int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(hi - lo + 1));
+    while (lo < hi) {
+      int pivotIndex = depthLimit-- > 0
+          ? lo + ThreadLocalRandom.current().nextInt(hi - lo + 1)
+          : medianOfMedians(a, lo, hi);
+      long pivot = a[pivotIndex];
+      /* Maintain invariant a[lo..lt-1] < pivot = a[lt..i-1] and a[gt+1..hi] > pivot */
+      int lt = lo;
+      int gt = hi;
+      for (int i = lo; i <= gt;) {
+        if (a[i] < pivot) {
+          swap(a, lt++, i++);
+        } else if (a[i] > pivot) {
+          swap(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      if (rank < lt) {
+        hi = lt - 1;
+      } else if (rank > gt) {
+        lo = gt + 1;
+      } else {
+        return rank;
+      }
+    }
+    return rank;
+  }
+
+  /*
+   * Return the index of the "median of medians" of a[lo..hi]: sort groups of 5 elements,
+   * move each group's median to the front of the range, then select the median of those medians.
+   */
+  private static int medianOfMedians(long[] a, int lo, int hi) {
+    int numGroups = 0;
+    for (int start = lo; start <= hi; start += 5) {
+      int end = Math.min(start + 4, hi);
+      insertionSort(a, start, end);
+      swap(a, lo + numGroups, start + (end - start + 1) / 2);
+      numGroups++;
+    }
+    return select(a, lo, lo + numGroups - 1, lo + (numGroups - 1) / 2);
+  }
+
+  /* Helper method to sort a[lo..hi] using InsertionSort algo */
+  private static void insertionSort(long[] a, int lo, int hi) {
+    for (int i = lo + 1; i <= hi; i++) {
+      long x = a[i];
+      int pos = i;
+      while (pos > lo && x < a[pos - 1]) {
+        a[pos] = a[pos - 1];
+        pos--;
+      }
+      a[pos] = x;
+    }
+  }
+
+  /* Helper method to swap i-th and j-th elements */
+  private static void swap(long[] a, int i, int j) {
+    long ai = a[i];
+    a[i] = a[j];
+    a[j] = ai;
+  }
+
+  /*
+   * Rearrange a[lo..hi] so that a[rank] holds the element it would hold if a[lo..hi] were sorted,
+   * and return rank. Random pivots are used for the first 2*floor(lg n) rounds, "median of medians"
+   * pivots afterwards.
+   */
+  private static int select(double[] a, int lo, int hi, int rank) {
+    int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(hi - lo + 1));
+    while (lo < hi) {
+      int pivotIndex = depthLimit-- > 0
+          ? lo + ThreadLocalRandom.current().nextInt(hi - lo + 1)
+          : medianOfMedians(a, lo, hi);
+      double pivot = a[pivotIndex];
+      /* Maintain invariant a[lo..lt-1] < pivot = a[lt..i-1] and a[gt+1..hi] > pivot */
+      int lt = lo;
+      int gt = hi;
+      for (int i = lo; i <= gt;) {
+        if (a[i] < pivot) {
+          swap(a, lt++, i++);
+        } else if (a[i] > pivot) {
+          swap(a, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      if (rank < lt) {
+        hi = lt - 1;
+      } else if (rank > gt) {
+        lo = gt + 1;
+      } else {
+        return rank;
+      }
+    }
+    return rank;
+  }
+
+  /*
+   * Return the index of the "median of medians" of a[lo..hi]: sort groups of 5 elements,
+   * move each group's median to the front of the range, then select the median of those medians.
+   */
+  private static int medianOfMedians(double[] a, int lo, int hi) {
+    int numGroups = 0;
+    for (int start = lo; start <= hi; start += 5) {
+      int end = Math.min(start + 4, hi);
+      insertionSort(a, start, end);
+      swap(a, lo + numGroups, start + (end - start + 1) / 2);
+      numGroups++;
+    }
+    return select(a, lo, lo + numGroups - 1, lo + (numGroups - 1) / 2);
+  }
+
+  /* Helper method to sort a[lo..hi] using InsertionSort algo */
+  private static void insertionSort(double[] a, int lo, int hi) {
+    for (int i = lo + 1; i <= hi; i++) {
+      double x = a[i];
+      int pos = i;
+      while (pos > lo && x < a[pos - 1]) {
+        a[pos] = a[pos - 1];
+        pos--;
+      }
+      a[pos] = x;
+    }
+  }
+
+  /* Helper method to swap i-th and j-th elements */
+  private static void swap(double[] a, int i, int j) {
+    double ai = a[i];
+    a[i] = a[j];
+    a[j] = ai;
+  }
+
+}
@@ -0,0 +1,414 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+
+/**
+ * Karger Randomized Contraction on a graph of vertices 0..n-1 whose edges are kept in two int arrays.
+ * Contracting uniformly random edges until 2 super-vertices remain is the same as visiting the edges in
+ * uniformly random order and merging the endpoints of every edge that is not yet a self-loop (Kruskal's
+ * algorithm with random weights), so a trial is an incremental Fisher-Yates shuffle of the edge indices
+ * driving a union-find, stopped once 2 components remain: O(E a(V)) time and no allocation, since the
+ * permutation and parent arrays are reused by every trial.
+ * Karger-Stein mode shares the contraction: it contracts to n/sqrt(2) vertices twice and recurses on both,
+ * so O(log^2(n)) runs of O(n^2 logn) time reach the success probability of n^2 ln(n) full contractions.
+ * Parallel edges are allowed (the graph is a multigraph), self-loops are not.
+ */
+public class KargerMinCut {
+
+  /* Graphs this small are solved by trying every cut in Karger-Stein's recursion */
+  private static final int BASE_SIZE = 6;
+
+  private final int n;
+  private final int[] us;
+  private final int[] vs;
+
+  /**
+   * Test both modes against brute force over all cuts, then time them against MinCutKargerAlgo.
+   * Usage: java KargerMinCut [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 200; test++) {
+      final int n = 2 + rd.nextInt(11);
+      KargerMinCut g = randomGraph(n, rd.nextInt(4 * n), false, rd);
+      int expected = g.exactMinCut();
+      // 10 times the default number of trials: failure probability below n^-20
+      int minCut = g.minCut(10 * defaultTrials(n), rd.nextLong());
+      if (minCut != expected) {
+        throw new AssertionError(String.format("min cut = %d; expected = %d (n = %d, m = %d)",
+                                               minCut, expected, n, g.numEdges()));
+      }
+      // Karger-Stein recurses from up to 20 vertices
+      g = randomGraph(2 + rd.nextInt(19), rd.nextInt(80), false, rd);
+      expected = g.exactMinCut();
+      minCut = g.kargerSteinMinCut(1 - 1e-9, rd.nextLong());
+      if (minCut != expected) {
+        throw new AssertionError(String.format("Karger-Stein min cut = %d; expected = %d (n = %d, m = %d)",
+                                               minCut, expected, g.n, g.numEdges()));
+      }
+    }
+
+    int n = 50;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    KargerMinCut g = randomGraph(n, 4 * n, true, rd);
+    long start = System.nanoTime();
+    int minCut = g.minCut();
+    long fastTime = System.nanoTime() - start;
+    // the success probability of defaultTrials(n) full contractions
+    final double successProbability = 1 - 1.0 / n;
+    start = System.nanoTime();
+    int kargerSteinMinCut = g.kargerSteinMinCut(successProbability);
+    long kargerSteinTime = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  m = %d  %d trials: union-find %.1f ms (cut %d)",
+                                     n, g.numEdges(), defaultTrials(n), fastTime / 1e6, minCut));
+    System.out.println(String.format("n = %d  m = %d  %d Karger-Stein runs: %.1f ms (cut %d)",
+                                     n, g.numEdges(), kargerSteinRuns(n, successProbability),
+                                     kargerSteinTime / 1e6, kargerSteinMinCut));
+    if (n <= 100) {
+      start = System.nanoTime();
+      int slowMinCut = toMinCutKargerAlgo(g).kargerContractionAlgo();
+      long slowTime = System.nanoTime() - start;
+      System.out.println(String.format("n = %d  m = %d  %d trials: MinCutKargerAlgo %.1f ms (cut %d)",
+                                       n, g.numEdges(), defaultTrials(n), slowTime / 1e6, slowMinCut));
+    }
+  }
+
+  /* Utility methods for tests */
+  /*
+   * A connected graph of n vertices: a random spanning tree plus up to extra random edges, which are
+   * parallel to others unless simple (MinCutKargerAlgo keeps a set of edges)
+   */
+  static KargerMinCut randomGraph(int n, int extra, boolean simple, Random rd) {
+    int[] u = new int[n - 1 + extra];
+    int[] v = new int[n - 1 + extra];
+    Set<Long> seen = new HashSet<>();
+    int m = 0;
+    for (int i = 1; i < n; i++, m++) {
+      u[m] = i;
+      v[m] = rd.nextInt(i);
+      seen.add((long) v[m] * n + u[m]);
+    }
+    for (int i = 0; i < extra; i++) {
+      int a = rd.nextInt(n);
+      int b = rd.nextInt(n);
+      if (a != b && (!simple || seen.add((long) Math.min(a, b) * n + Math.max(a, b)))) {
+        u[m] = a;
+        v[m++] = b;
+      }
+    }
+    return new KargerMinCut(n, Arrays.copyOf(u, m), Arrays.copyOf(v, m));
+  }
+
+  /* The same graph, with parallel edges collapsed by MinCutKargerAlgo's edge set */
+  private static MinCutKargerAlgo<Integer> toMinCutKargerAlgo(KargerMinCut g) {
+    List<Integer> vertices = new ArrayList<>();
+    for (int i = 0; i < g.n; i++) {
+      vertices.add(i);
+    }
+    MinCutKargerAlgo<Integer> res = new MinCutKargerAlgo<>(vertices);
+    for (int e = 0; e < g.us.length; e++) {
+      res.addEdge(g.us[e], g.vs[e]);
+    }
+    return res;
+  }
+
+  /**
+   * Build the graph of vertices 0..n-1 with edges u[i]-v[i]; the arrays are copied.
+   */
+  public KargerMinCut(int n, int[] u, int[] v) {
+    if (u == null || v == null) {
+      throw new NullPointerException("u or v is null");
+    }
+    if (n < 2) {
+      throw new IllegalArgumentException(String.format("a cut needs at least 2 vertices, not %d", n));
+    }
+    if (u.length != v.length) {
+      throw new IllegalArgumentException(String.format("u has %d endpoints, v has %d", u.length, v.length));
+    }
+    for (int i = 0; i < u.length; i++) {
+      if (u[i] < 0 || u[i] >= n || v[i] < 0 || v[i] >= n) {
+        throw new IllegalArgumentException(String.format("edge %d-%d out of range 0..%d", u[i], v[i], n - 1));
+      }
+      if (u[i] == v[i]) {
+        throw new IllegalArgumentException(String.format("edge %d-%d is a self-loop", u[i], v[i]));
+      }
+    }
+    this.n = n;
+    this.us = u.clone();
+    this.vs = v.clone();
+  }
+
+  /* A graph of n vertices on valid edge arrays, which are not copied */
+  private KargerMinCut(int[] us, int[] vs, int n) {
+    this.n = n;
+    this.us = us;
+    this.vs = vs;
+  }
+
+  /**
+   * Get the number of vertices.
+   */
+  public int numVertices() {
+    return n;
+  }
+
+  /**
+   * Get the number of edges.
+   */
+  public int numEdges() {
+    return us.length;
+  }
+
+  /**
+   * Number of trials run by minCut(): n^2 ln(n), as MinCutKargerAlgo.kargerContractionAlgo(),
+   * for a failure probability of at most 1/n.
+   */
+  public static long defaultTrials(int n) {
+    return Math.max(1, (long) ((double) n * n * Math.log(n)));
+  }
+
+  /**
+   * Monte Carlo min cut: the fewest crossing edges found by defaultTrials(n) trials.
+   */
+  public int minCut() {
+    return minCut(defaultTrials(n), new SplittableRandom());
+  }
+
+  /**
+   * Monte Carlo min cut: the fewest crossing edges found by the given number of trials, seeded for
+   * reproducible runs.
+   */
+  public int minCut(long trials, long seed) {
+    return minCut(trials, new SplittableRandom(seed));
+  }
+
+  /**
+   * Get the fewest edges at a vertex: the cut around that vertex, so an upper bound on the min cut.
+   */
+  public int minDegree() {
+    int[] degree = new int[n];
+    for (int e = 0; e < us.length; e++) {
+      degree[us[e]]++;
+      degree[vs[e]]++;
+    }
+    int min = Integer.MAX_VALUE;
+    for (int d : degree) {
+      min = Math.min(min, d);
+    }
+    return min;
+  }
+
+  /* Scratch arrays for one thread's trials */
+  Contraction newContraction() {
+    return new Contraction();
+  }
+
+  private int minCut(long trials, SplittableRandom rd) {
+    if (trials < 1) {
+      throw new IllegalArgumentException(String.format("number of trials %d must be positive", trials));
+    }
+    Contraction contraction = new Contraction();
+    int best = Integer.MAX_VALUE;
+    for (long i = 0; i < trials && best > 0; i++) {
+      best = Math.min(best, contraction.run(rd));
+    }
+    return best;
+  }
+
+
+  /**
+   * Number of Karger-Stein runs made by kargerSteinMinCut(successProbability) on n vertices.
+   * A run finds a given min cut with probability at least 1/(d+1), where d is the depth of its recursion,
+   * about 2log2(n), so the number of runs is O(logn log(1/(1-successProbability))): O(log^2(n)) for
+   * successProbability 1-1/n, which defaultTrials(n) full contractions achieve.
+   */
+  public static long kargerSteinRuns(int n, double successProbability) {
+    if (!(successProbability > 0 && successProbability < 1)) {
+      throw new IllegalArgumentException(String.format("success probability %s out of range (0, 1)",
+                                                       successProbability));
+    }
+    int depth = 0;
+    for (int size = n; size > BASE_SIZE; size = contractedSize(size)) {
+      depth++;
+    }
+    double runSuccess = 1.0 / (depth + 1);
+    return Math.max(1, (long) Math.ceil(Math.log(1 - successProbability) / Math.log(1 - runSuccess)));
+  }
+
+  /**
+   * Karger-Stein min cut: the fewest crossing edges found by kargerSteinRuns(n, successProbability) runs,
+   * which is a min cut with at least the given probability.
+   */
+  public int kargerSteinMinCut(double successProbability) {
+    return kargerSteinMinCut(successProbability, new SplittableRandom());
+  }
+
+  /**
+   * Karger-Stein min cut, seeded for reproducible runs.
+   */
+  public int kargerSteinMinCut(double successProbability, long seed) {
+    return kargerSteinMinCut(successProbability, new SplittableRandom(seed));
+  }
+
+  private int kargerSteinMinCut(double successProbability, SplittableRandom rd) {
+    final long runs = kargerSteinRuns(n, successProbability);
+    int best = Integer.MAX_VALUE;
+    for (long i = 0; i < runs && best > 0; i++) {
+      best = Math.min(best, kargerStein(rd));
+    }
+    return best;
+  }
+
+  /*
+   * One Karger-Stein run: contract to contractedSize(n) vertices twice, independently, and recurse on both.
+   * The min cut survives a contraction with probability at least 1/2, so one of the two branches keeps it
+   * much more often than a single full contraction would.
+   */
+  private int kargerStein(SplittableRandom rd) {
+    if (n <= BASE_SIZE) {
+      return exactMinCut();
+    }
+    final int t = contractedSize(n);
+    int best = Integer.MAX_VALUE;
+    for (int branch = 0; branch < 2 && best > 0; branch++) {
+      KargerMinCut contracted = contract(t, rd);
+      best = Math.min(best, contracted == null ? 0 : contracted.kargerStein(rd));
+    }
+    return best;
+  }
+
+  /* ceil(1 + n/sqrt(2)): a min cut survives contraction from n to this many vertices with probability >= 1/2 */
+  private static int contractedSize(int n) {
+    return (int) Math.ceil(1 + n / Math.sqrt(2));
+  }
+
+  /* Contract random edges until t vertices remain and return that graph, or null if the graph is disconnected */
+  private KargerMinCut contract(int t, SplittableRandom rd) {
+    Contraction contraction = new Contraction();
+    if (contraction.contractTo(t, rd) > t) {
+      return null;
+    }
+    // number the roots 0..t-1, and keep the edges between different roots
+    int[] label = new int[n];
+    for (int x = 0, k = 0; x < n; x++) {
+      if (contraction.parent[x] < 0) {
+        label[x] = k++;
+      }
+    }
+    int[] u = new int[us.length];
+    int[] v = new int[us.length];
+    int m = 0;
+    for (int e = 0; e < us.length; e++) {
+      int a = contraction.find(us[e]);
+      int b = contraction.find(vs[e]);
+      if (a != b) {
+        u[m] = label[a];
+        v[m++] = label[b];
+      }
+    }
+    return new KargerMinCut(Arrays.copyOf(u, m), Arrays.copyOf(v, m), t);
+  }
+
+  /* Min cut by trying every 2-coloring with vertex n-1 on side 0, for n < 32 */
+  int exactMinCut() {
+    int best = Integer.MAX_VALUE;
+    for (int side = 1; side < 1 << (n - 1); side++) {
+      int cut = 0;
+      for (int e = 0; e < us.length; e++) {
+        if ((side >>> us[e] & 1) != (side >>> vs[e] & 1)) {
+          cut++;
+        }
+      }
+      best = Math.min(best, cut);
+    }
+    return best;
+  }
+
+
+  /*
+   * Scratch arrays of one thread's trials: the edge permutation, shuffled further by every trial, and the
+   * union-find forest, where parent[x] is x's parent, or minus the size of its tree if x is a root.
+   */
+  class Contraction {
+    private final int[] perm = new int[us.length];
+    private final int[] parent = new int[n];
+
+    private Contraction() {
+      for (int i = 0; i < perm.length; i++) {
+        perm[i] = i;
+      }
+    }
+
+    /* One trial: contract random edges until 2 components remain, then count the edges crossing them */
+    int run(SplittableRandom rd) {
+      if (contractTo(2, rd) > 2) {
+        // the graph is disconnected
+        return 0;
+      }
+      int cut = 0;
+      for (int e = 0; e < us.length; e++) {
+        if (find(us[e]) != find(vs[e])) {
+          cut++;
+        }
+      }
+      return cut;
+    }
+
+    /* Reset the forest and contract random edges until target components remain; return their number */
+    private int contractTo(int target, SplittableRandom rd) {
+      Arrays.fill(parent, -1);
+      int components = n;
+      for (int i = 0; i < perm.length && components > target; i++) {
+        // any order is a fine start for Fisher-Yates, so the previous trial's permutation is not reset
+        int j = i + rd.nextInt(perm.length - i);
+        int e = perm[j];
+        perm[j] = perm[i];
+        perm[i] = e;
+        if (union(us[e], vs[e])) {
+          components--;
+        }
+      }
+      return components;
+    }
+
+    /* Root of x's tree, halving the path on the way */
+    private int find(int x) {
+      while (parent[x] >= 0) {
+        if (parent[parent[x]] >= 0) {
+          parent[x] = parent[parent[x]];
+        }
+        x = parent[x];
+      }
+      return x;
+    }
+
+    /* Merge the trees of x and y, the smaller under the larger; false if they are the same tree */
+    private boolean union(int x, int y) {
+      x = find(x);
+      y = find(y);
+      if (x == y) {
+        return false;
+      }
+      if (parent[x] > parent[y]) {
+        int t = x;
+        x = y;
+        y = t;
+      }
+      parent[x] += parent[y];
+      parent[y] = x;
+      return true;
+    }
+  }
+
+}
@@ -0,0 +1,330 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+
+/**
+ * KLL sketch (Karnin, Lang and Liberty), which estimates quantiles of an unbounded stream in O(k) memory.
+ * Values are kept in a hierarchy of compactors: every value at level h stands for 2^h values of the stream.
+ * When a level is full it is sorted and every other value, starting at a random offset, is promoted to
+ * the next level, the others are dropped. Capacities shrink geometrically from the top level down, so
+ * at most about 3k values are retained, and the rank error of a quantile is on the order of count/k.
+ * Sketches built by separate threads are combined with merge.
+ */
+public class KllSketch implements QuantileEstimator {
+
+  /** Capacity of the top level; a rank error of about 1% of the count. */
+  public static final int DEFAULT_K = 200;
+
+  /* Capacity ratio between adjacent levels */
+  private static final double DECAY = 2.0 / 3.0;
+
+  /* Levels never get smaller than this, so that a compaction always has a pair to work on */
+  private static final int MIN_CAPACITY = 2;
+
+  private final int k;
+  // levels[h][0..sizes[h]-1] are the values retained at level h, each of weight 2^h
+  private double[][] levels;
+  private int[] sizes;
+  private int numLevels;
+  // number of values retained at all levels, and the bound that triggers a compaction
+  private int retained;
+  private int maxRetained;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Run tests against ExactQuantiles, then time a multi-threaded build and merge.
+   * Usage: java KllSketch [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    // ranks are not thrown off by the rounding of q * n: j/n and the percentiles of 100 values are exact
+    for (int n = 1; n <= 1000; n++) {
+      for (int j = 0; j <= n; j++) {
+        long rank = ExactQuantiles.rank((double) j / n, n);
+        if (rank != Math.max(1, j)) {
+          throw new AssertionError(String.format("rank(%d/%d, %d) = %d; expected = %d", j, n, n, rank, Math.max(1, j)));
+        }
+      }
+    }
+    ExactQuantiles percentiles = new ExactQuantiles();
+    for (int i = 100; i >= 1; i--) {
+      percentiles.add(i);
+    }
+    for (int p = 0; p <= 100; p++) {
+      double value = percentiles.quantile(p / 100.0);
+      if (ExactQuantiles.rank(p / 100.0, 100) != Math.max(1, p) || value != Math.max(1, p)) {
+        throw new AssertionError(String.format("p%d of 1..100 = %s; expected = %d", p, value, Math.max(1, p)));
+      }
+    }
+    if (ExactQuantiles.rank(0.07, 100) != 7) {
+      throw new AssertionError(String.format("rank(0.07, 100) = %d; expected = 7", ExactQuantiles.rank(0.07, 100)));
+    }
+
+    final double[] qs = {0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0};
+    for (int test = 0; test < 20; test++) {
+      final int n = 1 + rd.nextInt(test % 2 == 0 ? 1000 : 300_000);
+      final int k = 50 + rd.nextInt(300);
+      double[] values = new double[n];
+      // half of the tests draw skewed, heavily duplicated "latencies"
+      for (int i = 0; i < n; i++) {
+        values[i] = test % 4 < 2 ? rd.nextGaussian() : Math.floor(Math.exp(4 * rd.nextDouble()));
+      }
+      // build the exact and approximate estimators by 4 "threads" each, then merge them
+      QuantileEstimator exact = build(values, 4, ExactQuantiles::new);
+      QuantileEstimator approx = build(values, 4, () -> new KllSketch(k));
+      if (exact.count() != n || approx.count() != n) {
+        throw new AssertionError(String.format("counted %d and %d values; expected %d",
+                                               exact.count(), approx.count(), n));
+      }
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      double[] expected = exact.quantiles(qs);
+      double[] estimated = approx.quantiles(qs);
+      for (int i = 0; i < qs.length; i++) {
+        long rank = ExactQuantiles.rank(qs[i], n);
+        if (expected[i] != sorted[(int) rank - 1]) {
+          throw new AssertionError(String.format("exact %s-quantile = %s; expected = %s",
+                                                 qs[i], expected[i], sorted[(int) rank - 1]));
+        }
+        // the estimate is correct if rank is within the error bound of the ranks its value covers
+        double error = 3.0 / k * n;
+        int first = lowerBound(sorted, estimated[i]) + 1;
+        int last = lowerBound(sorted, Math.nextUp(estimated[i]));
+        if (first > last || rank < first - error || rank > last + error) {
+          throw new AssertionError(String.format("%s-quantile estimate %s has ranks %d..%d; expected %d +- %.0f",
+                                                 qs[i], estimated[i], first, last, rank, error));
+        }
+      }
+    }
+
+    int n = 10_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    double[] latencies = new double[n];
+    for (int i = 0; i < n; i++) {
+      latencies[i] = Math.exp(rd.nextGaussian());
+    }
+    final int threads = ForkJoinPool.commonPool().getParallelism();
+    long start = System.nanoTime();
+    KllSketch sketch = (KllSketch) build(latencies, threads, KllSketch::new);
+    double[] estimated = sketch.quantiles(0.5, 0.99, 0.999);
+    long sketchTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    double[] expected = build(latencies, 1, ExactQuantiles::new).quantiles(0.5, 0.99, 0.999);
+    long exactTime = System.nanoTime() - start;
+    System.out.println(String.format("n = %d  KllSketch (%d threads, %d values retained) %.1f ms  p50 %.4f  p99 %.4f"
+                                     + "  p99.9 %.4f", n, threads, sketch.retained, sketchTime / 1e6,
+                                     estimated[0], estimated[1], estimated[2]));
+    System.out.println(String.format("n = %d  ExactQuantiles %.1f ms  p50 %.4f  p99 %.4f  p99.9 %.4f",
+                                     n, exactTime / 1e6, expected[0], expected[1], expected[2]));
+  }
+
+  /* Utility method for tests: add values by slices on parallel threads, each into its own estimator, then merge */
+  private static QuantileEstimator build(double[] values, int threads, Supplier<QuantileEstimator> factory) {
+    QuantileEstimator[] parts = new QuantileEstimator[threads];
+    IntStream.range(0, threads).parallel().forEach(t -> {
+      QuantileEstimator part = factory.get();
+      int end = (int) ((long) values.length * (t + 1) / threads);
+      for (int i = (int) ((long) values.length * t / threads); i < end; i++) {
+        part.add(values[i]);
+      }
+      parts[t] = part;
+    });
+    for (int t = 1; t < threads; t++) {
+      parts[0].merge(parts[t]);
+    }
+    return parts[0];
+  }
+
+  /* Utility method for tests: first index in sorted a whose element is not less than x, or a.length */
+  private static int lowerBound(double[] a, double x) {
+    int lo = 0;
+    int hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] < x) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Create a sketch with top level capacity DEFAULT_K.
+   */
+  public KllSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Create a sketch with top level capacity k; a larger k is more accurate and takes more memory.
+   */
+  public KllSketch(int k) {
+    if (k < MIN_CAPACITY) {
+      throw new IllegalArgumentException(String.format("k %d must be at least %d", k, MIN_CAPACITY));
+    }
+    this.k = k;
+    this.levels = new double[1][k];
+    this.sizes = new int[1];
+    this.numLevels = 1;
+    this.maxRetained = k;
+  }
+
+  @Override
+  public void add(double x) {
+    if (Double.isNaN(x)) {
+      throw new IllegalArgumentException("NaN value");
+    }
+    min = Math.min(min, x);
+    max = Math.max(max, x);
+    count++;
+    append(0, x);
+    if (retained >= maxRetained) {
+      compress();
+    }
+  }
+
+  @Override
+  public long count() {
+    return count;
+  }
+
+  @Override
+  public double quantile(double q) {
+    return quantiles(q)[0];
+  }
+
+  /**
+   * Get the qs[i]-quantile for every i. All levels are sorted and then merged once, weights being
+   * summed along the way, so the 0 and 1 quantiles are the exact minimum and maximum.
+   */
+  @Override
+  public double[] quantiles(double... qs) {
+    long[] ranks = new long[qs.length];
+    Integer[] order = new Integer[qs.length];
+    for (int i = 0; i < qs.length; i++) {
+      ranks[i] = ExactQuantiles.rank(qs[i], count);
+      order[i] = i;
+    }
+    Arrays.sort(order, (i, j) -> Long.compare(ranks[i], ranks[j]));
+
+    double[] res = new double[qs.length];
+    int[] next = new int[numLevels];
+    for (int h = 0; h < numLevels; h++) {
+      Arrays.sort(levels[h], 0, sizes[h]);
+    }
+    // Compactions preserve weight, so the retained weights sum up to count
+    long cumulative = 0;
+    int answered = 0;
+    while (answered < qs.length) {
+      int lightest = -1;
+      for (int h = 0; h < numLevels; h++) {
+        if (next[h] < sizes[h] && (lightest < 0 || levels[h][next[h]] < levels[lightest][next[lightest]])) {
+          lightest = h;
+        }
+      }
+      double x = levels[lightest][next[lightest]++];
+      cumulative += 1L << lightest;
+      for (; answered < qs.length && ranks[order[answered]] <= cumulative; answered++) {
+        int i = order[answered];
+        res[i] = ranks[i] == 1 ? min : ranks[i] == count ? max : x;
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public void merge(QuantileEstimator other) {
+    if (!(other instanceof KllSketch)) {
+      throw new IllegalArgumentException("can only merge another KllSketch");
+    }
+    KllSketch that = (KllSketch) other;
+    if (that == this) {
+      throw new IllegalArgumentException("cannot merge a sketch into itself");
+    }
+    while (numLevels < that.numLevels) {
+      addLevel();
+    }
+    for (int h = 0; h < that.numLevels; h++) {
+      for (int i = 0; i < that.sizes[h]; i++) {
+        append(h, that.levels[h][i]);
+      }
+    }
+    count += that.count;
+    min = Math.min(min, that.min);
+    max = Math.max(max, that.max);
+    compress();
+  }
+
+  /* Capacity of level h, given the current number of levels */
+  private int capacity(int h) {
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, numLevels - h - 1)));
+  }
+
+  /* Append x to level h, growing its array if needed */
+  private void append(int h, double x) {
+    if (sizes[h] == levels[h].length) {
+      levels[h] = Arrays.copyOf(levels[h], 2 * sizes[h]);
+    }
+    levels[h][sizes[h]++] = x;
+    retained++;
+  }
+
+  /* Add an empty top level, which lowers the capacities of all levels below it */
+  private void addLevel() {
+    levels = Arrays.copyOf(levels, numLevels + 1);
+    sizes = Arrays.copyOf(sizes, numLevels + 1);
+    levels[numLevels] = new double[MIN_CAPACITY];
+    numLevels++;
+    maxRetained = 0;
+    for (int h = 0; h < numLevels; h++) {
+      maxRetained += capacity(h);
+    }
+  }
+
+  /* Compact every level that is at or over capacity, from the bottom up */
+  private void compress() {
+    for (int h = 0; h < numLevels; h++) {
+      if (sizes[h] >= capacity(h)) {
+        if (h + 1 == numLevels) {
+          addLevel();
+        }
+        compact(h);
+      }
+    }
+  }
+
+  /*
+   * Sort level h and promote every other value, starting at a random offset, to level h+1.
+   * If the level has an odd size its largest value stays behind, so no weight is lost.
+   */
+  private void compact(int h) {
+    double[] level = levels[h];
+    int size = sizes[h];
+    Arrays.sort(level, 0, size);
+    int pairs = size / 2;
+    int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+    for (int i = 0; i < pairs; i++) {
+      append(h + 1, level[2 * i + offset]);
+    }
+    if (size % 2 != 0) {
+      level[0] = level[size - 1];
+    }
+    sizes[h] = size % 2;
+    retained -= 2 * pairs;
+  }
+
+}
@@ -111,6 +111,45 @@ public class MinCutKargerAlgo<T extends Comparable<T>> {
     return fewestCrossEdges;
   }
   
+  /**
+   * Monte Carlo Karger Randomized Contraction algorithm with the same number of tries, run by KargerMinCut
+   * on primitive edge arrays: each try is a random edge permutation driving a union-find.
+   */
+  public int unionFindContractionAlgo() {
+    return toKargerMinCut().minCut();
+  }
+  
+  /**
+   * unionFindContractionAlgo() with the tries run in parallel on the common pool by ParallelKargerMinCut.
+   */
+  public int parallelContractionAlgo() {
+    return ParallelKargerMinCut.minCut(toKargerMinCut());
+  }
+  
+  /**
+   * Karger-Stein Recursive Contraction algorithm, run by KargerMinCut: it returns a min cut with at least
+   * the given probability, in O(log^2(V)) runs for the probability 1-1/V of kargerContractionAlgo().
+   */
+  public int kargerSteinAlgo(double successProbability) {
+    return toKargerMinCut().kargerSteinMinCut(successProbability);
+  }
+  
+  /* Number the vertices 0..V-1 in iteration order and copy the edges into int arrays */
+  private KargerMinCut toKargerMinCut() {
+    Map<T, Integer> index = new HashMap<>();
+    for (T v : vertices) {
+      index.put(v, index.size());
+    }
+    int[] u = new int[edges.size()];
+    int[] v = new int[edges.size()];
+    int i = 0;
+    for (Edge<T> e : edges) {
+      u[i] = index.get(e.u);
+      v[i++] = index.get(e.v);
+    }
+    return new KargerMinCut(vertices.size(), u, v);
+  }
+  
   /* Single-try Karger Randomized Contraction algorithm. */
   private int runContractionAlgo1Time() {
     Set<Set<T>> vertexSet = vertices2FusedVertices();
@@ -249,6 +288,21 @@ public class MinCutKargerAlgo<T extends Comparable<T>> {
     long runtime = (System.currentTimeMillis() - start) / 1000;
     System.out.println("Run time (in seconds): " + runtime);
     System.out.println(String.format("Minimum Cut has %d crossing edges.", minCut));
+    
+    start = System.currentTimeMillis();
+    minCut = g.unionFindContractionAlgo();
+    System.out.println("Union-find run time (in milliseconds): " + (System.currentTimeMillis() - start));
+    System.out.println(String.format("Minimum Cut has %d crossing edges.", minCut));
+    
+    start = System.currentTimeMillis();
+    minCut = g.parallelContractionAlgo();
+    System.out.println("Parallel union-find run time (in milliseconds): " + (System.currentTimeMillis() - start));
+    System.out.println(String.format("Minimum Cut has %d crossing edges.", minCut));
+    
+    start = System.currentTimeMillis();
+    minCut = g.kargerSteinAlgo(1 - 1.0 / vertices.size());
+    System.out.println("Karger-Stein run time (in milliseconds): " + (System.currentTimeMillis() - start));
+    System.out.println(String.format("Minimum Cut has %d crossing edges.", minCut));
   }
   
   /* Utility method for loading test data */
@@ -0,0 +1,285 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Fork-join Deterministic Select, which computes k-th smallest element in the given array in O(n) time.
+ * Sorting the groups of 5 and collecting their medians is done by parallel chunks of groups,
+ * and the 3-way partition around the "median of medians" is done by parallel blocks:
+ * every block counts its keys less than and equal to the pivot, prefix sums give each block
+ * its output offsets, and every block then scatters its keys into a second array.
+ * Subarrays no longer than the threshold are handed to DSelectArray.
+ */
+public class ParallelDSelect {
+
+  /** Subarrays of at most this many elements are handled sequentially; also the partition block size. */
+  public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+  /**
+   * Run tests, then time against DSelectArray.
+   * Usage: java ParallelDSelect [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 100; test++) {
+      final int n = 1 + rd.nextInt(50000);
+      Integer[] input = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        input[i] = rd.nextInt(test % 2 == 0 ? 100 : n);
+      }
+      Integer[] sorted = input.clone();
+      Arrays.sort(sorted);
+      int threshold = 5 + rd.nextInt(2000);
+      for (int k = 1; k <= n; k += 1 + rd.nextInt(n / 10 + 1)) {
+        Integer actual = kthSmallest(input, k, ForkJoinPool.commonPool(), threshold);
+        if (!actual.equals(sorted[k - 1])) {
+          throw new AssertionError(String.format("computed %d-th smallest = %d; expected = %d",
+                                                 k, actual, sorted[k - 1]));
+        }
+      }
+    }
+
+    int n = 5_000_000;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    Integer[] input = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = rd.nextInt();
+    }
+    final int k = (int) (n * 0.99);
+    Integer[] a = input.clone();
+    long start = System.nanoTime();
+    Integer expected = DSelectArray.kthSmallest(a, k, new Integer[n / 5 + 1]);
+    long sequential = System.nanoTime() - start;
+    a = input.clone();
+    start = System.nanoTime();
+    Integer actual = kthSmallest(a, k);
+    long parallel = System.nanoTime() - start;
+    if (!actual.equals(expected)) {
+      throw new AssertionError(String.format("computed %d-th smallest = %d; expected = %d", k, actual, expected));
+    }
+    System.out.println(String.format("n = %d  DSelectArray %.1f ms  ParallelDSelect (%d threads) %.1f ms",
+                                     n, sequential / 1e6, ForkJoinPool.commonPool().getParallelism(),
+                                     parallel / 1e6));
+  }
+
+  /**
+   * Compute and return k-th smallest element on the common pool with the default threshold.
+   */
+  public static <T extends Comparable<T>> T kthSmallest(T[] a, int k) {
+    return kthSmallest(a, k, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Compute and return k-th smallest element on the given pool; a is not modified.
+   * Workspace of about 2.25n references is allocated once per call.
+   */
+  public static <T extends Comparable<T>> T kthSmallest(T[] a, int k, ForkJoinPool pool, int threshold) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    final int n = a.length;
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+    }
+    if (pool == null) {
+      throw new IllegalArgumentException("null pool");
+    }
+    if (threshold < 5) {
+      throw new IllegalArgumentException(String.format("threshold %d must be at least 5", threshold));
+    }
+
+    if (n <= threshold) {
+      return DSelectArray.kthSmallest(a.clone(), 0, n, k, Arrays.copyOf(a, numGroups(n)), false);
+    }
+    Selector<T> selector = new Selector<>(a, pool, threshold);
+    return selector.select(selector.work, selector.aux, 0, n, k - 1, 0);
+  }
+
+  /* Number of groups of 5 elements that len elements are divided into */
+  private static int numGroups(int len) {
+    return len % 5 != 0 ? (len / 5) + 1 : len / 5;
+  }
+
+
+  /* Workspace and recursion of one kthSmallest call */
+  private static class Selector<T extends Comparable<T>> {
+    private final ForkJoinPool pool;
+    private final int threshold;
+    // the two arrays partitions ping-pong between; both also serve as scratch of the nested selects
+    private final T[] work;
+    private final T[] aux;
+    // group medians of every pending level; each recursion level takes the next free region
+    private final T[] medians;
+    // medians buffer of DSelectArray once a subarray gets short enough
+    private final T[] seqMedians;
+
+    private Selector(T[] a, ForkJoinPool pool, int threshold) {
+      this.pool = pool;
+      this.threshold = threshold;
+      int mediansLen = 0;
+      for (int len = a.length; len > threshold; len = numGroups(len)) {
+        mediansLen += numGroups(len);
+      }
+      this.work = a.clone();
+      this.aux = Arrays.copyOf(a, a.length);
+      this.medians = Arrays.copyOf(a, mediansLen);
+      this.seqMedians = Arrays.copyOf(a, numGroups(threshold));
+    }
+
+    /*
+     * Return the element of (0-based) rank index "rank" of x[lo..hi-1].
+     * y is the scratch array for partitioning, and each pass swaps the roles of x and y;
+     * medians[mFree..] is free for group medians.
+     *
+     * 1 ) Compute a garanteed good pivot based on "Median of Medians" idea, in parallel.
+     * 2 ) Partition x[lo..hi-1] around pivot into y[lo..hi-1], in parallel.
+     * 3a) If pivot's range contains rank then return pivot.
+     * 3b) Otherwise, continue on the Left or Right part of pivot's range.
+     */
+    private T select(T[] x, T[] y, int lo, int hi, int rank, int mFree) {
+      while (hi - lo > threshold) {
+        final int len = hi - lo;
+        final int numGroups = numGroups(len);
+
+        // 1) Sort groups of 5 and collect their medians into medians[mFree..mFree+numGroups-1]
+        final T[] src = x;
+        final int from = lo;
+        final int groupsPerBlock = Math.max(1, threshold / 5);
+        forEachBlock((numGroups + groupsPerBlock - 1) / groupsPerBlock, block -> {
+          int groupEnd = Math.min(numGroups, (block + 1) * groupsPerBlock);
+          for (int group = block * groupsPerBlock; group < groupEnd; group++) {
+            int start = from + 5 * group;
+            int size = Math.min(5, from + len - start);
+            DSelectArray.insertionSort(src, start, size);
+            medians[mFree + group] = src[start + size / 2];
+          }
+        });
+        /*
+         * Recur to compute "median of medians" pivot. Its scratch is y, or x when y is the medians
+         * array itself: live data of this and enclosing levels never reaches index mFree in that array.
+         */
+        T[] scratch = y == medians ? x : y;
+        T pivot = select(medians, scratch, mFree, mFree + numGroups, mFree + (numGroups - 1) / 2,
+                         mFree + numGroups);
+
+        // 2) Partition x[lo..hi-1] around pivot into y[lo..hi-1]
+        final int numBlocks = (len + threshold - 1) / threshold;
+        final int[] numLess = new int[numBlocks];
+        final int[] numEqual = new int[numBlocks];
+        forEachBlock(numBlocks, block -> {
+          int end = Math.min(from + len, from + (block + 1) * threshold);
+          int less = 0;
+          int equal = 0;
+          for (int i = from + block * threshold; i < end; i++) {
+            int cmp = src[i].compareTo(pivot);
+            if (cmp < 0) {
+              less++;
+            } else if (cmp == 0) {
+              equal++;
+            }
+          }
+          numLess[block] = less;
+          numEqual[block] = equal;
+        });
+        int totalLess = 0;
+        int totalEqual = 0;
+        for (int block = 0; block < numBlocks; block++) {
+          totalLess += numLess[block];
+          totalEqual += numEqual[block];
+        }
+        // Turn counts into each block's first output index for each of the 3 parts
+        final int[] lessAt = new int[numBlocks];
+        final int[] equalAt = new int[numBlocks];
+        final int[] greaterAt = new int[numBlocks];
+        int nextLess = lo;
+        int nextEqual = lo + totalLess;
+        int nextGreater = lo + totalLess + totalEqual;
+        for (int block = 0; block < numBlocks; block++) {
+          int blockLen = Math.min(threshold, len - block * threshold);
+          lessAt[block] = nextLess;
+          equalAt[block] = nextEqual;
+          greaterAt[block] = nextGreater;
+          nextLess += numLess[block];
+          nextEqual += numEqual[block];
+          nextGreater += blockLen - numLess[block] - numEqual[block];
+        }
+        final T[] dst = y;
+        forEachBlock(numBlocks, block -> {
+          int end = Math.min(from + len, from + (block + 1) * threshold);
+          int l = lessAt[block];
+          int e = equalAt[block];
+          int g = greaterAt[block];
+          for (int i = from + block * threshold; i < end; i++) {
+            int cmp = src[i].compareTo(pivot);
+            if (cmp < 0) {
+              dst[l++] = src[i];
+            } else if (cmp == 0) {
+              dst[e++] = src[i];
+            } else {
+              dst[g++] = src[i];
+            }
+          }
+        });
+
+        // 3) Keep the part containing rank, which now lives in y
+        int lt = lo + totalLess;
+        int gt = lt + totalEqual - 1;
+        if (lt <= rank && rank <= gt) {
+          return pivot;
+        }
+        if (rank < lt) {
+          hi = lt;
+        } else {
+          lo = gt + 1;
+        }
+        T[] tmp = x;
+        x = y;
+        y = tmp;
+      }
+      return DSelectArray.kthSmallest(x, lo, hi - lo, rank - lo + 1, seqMedians, false);
+    }
+
+    /* Run action on blocks 0..numBlocks-1 in parallel */
+    private void forEachBlock(int numBlocks, BlockAction action) {
+      pool.invoke(new BlockTask(0, numBlocks, action));
+    }
+  }
+
+  /* Work done on one block */
+  private interface BlockAction {
+    void run(int block);
+  }
+
+  /* Run action on blocks from..to-1 by halving the range into subtasks */
+  private static class BlockTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int from;
+    private final int to;
+    private final BlockAction action;
+
+    private BlockTask(int from, int to, BlockAction action) {
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.run(from);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new BlockTask(from, mid, action), new BlockTask(mid, to, action));
+    }
+  }
+
+}
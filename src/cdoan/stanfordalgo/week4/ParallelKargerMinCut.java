@@ -0,0 +1,160 @@
+package cdoan.stanfordalgo.week4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Karger Randomized Contraction trials of KargerMinCut run in parallel: the trials are dealt out to one task
+ * per worker of the pool, each with its own SplittableRandom, split from a seeded root before forking, and its
+ * own scratch arrays, so trials share nothing but the best cut found so far.
+ * The best cut starts at the min degree, which is the cut around one vertex, and the tasks stop as soon as
+ * it reaches a lower bound known by the caller (1 if the graph is known to be connected, k if k-edge-connected).
+ */
+public class ParallelKargerMinCut {
+
+  /**
+   * Test against brute force over all cuts, then report trials/sec from 1 to N threads.
+   * Usage: java ParallelKargerMinCut [n]
+   */
+  public static void main(String[] args) {
+    Random rd = new Random();
+    for (int test = 0; test < 200; test++) {
+      final int n = 2 + rd.nextInt(11);
+      KargerMinCut g = KargerMinCut.randomGraph(n, rd.nextInt(4 * n), false, rd);
+      int expected = g.exactMinCut();
+      ForkJoinPool pool = new ForkJoinPool(1 + rd.nextInt(4));
+      int minCut = minCut(g, 10 * KargerMinCut.defaultTrials(n), 0, pool, rd.nextLong());
+      // with the min cut as lower bound, the first trial finding it stops them all
+      int stopped = minCut(g, Long.MAX_VALUE, expected, pool, rd.nextLong());
+      pool.shutdown();
+      if (minCut != expected || stopped != expected) {
+        throw new AssertionError(String.format("min cut = %d, %d with lower bound; expected = %d (n = %d, m = %d)",
+                                               minCut, stopped, expected, n, g.numEdges()));
+      }
+    }
+
+    int n = 200;
+    if (args.length > 0) {
+      try {
+        n = Integer.parseInt(args[0]);
+      } catch (NumberFormatException nfe) {}
+    }
+    KargerMinCut g = KargerMinCut.randomGraph(n, 4 * n, true, rd);
+    final long trials = KargerMinCut.defaultTrials(n);
+    final int maxThreads = Runtime.getRuntime().availableProcessors();
+    long base = 0;
+    int minCut = 0;
+    for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long start = System.nanoTime();
+      // lower bound 0: no early termination, so that every run makes all the trials
+      minCut = minCut(g, trials, 0, pool, rd.nextLong());
+      long time = System.nanoTime() - start;
+      pool.shutdown();
+      if (threads == 1) {
+        base = time;
+      }
+      System.out.println(String.format("n = %d  m = %d  threads = %2d  %d trials  %9.1f ms  %.0f trials/sec  speedup %.2fx  (cut %d)",
+                                       n, g.numEdges(), threads, trials, time / 1e6, trials / (time / 1e9),
+                                       (double) base / time, minCut));
+    }
+    long start = System.nanoTime();
+    int stopped = minCut(g, trials, minCut, ForkJoinPool.commonPool(), rd.nextLong());
+    System.out.println(String.format("n = %d  m = %d  lower bound %d: stopped after %.1f ms  (cut %d)",
+                                     n, g.numEdges(), minCut, (System.nanoTime() - start) / 1e6, stopped));
+  }
+
+  /* 1, 2, 4, ... and finally maxThreads itself */
+  private static int nextThreadCount(int threads, int maxThreads) {
+    if (threads == maxThreads) {
+      return maxThreads + 1;
+    }
+    return Math.min(threads * 2, maxThreads);
+  }
+
+  /**
+   * Monte Carlo min cut of g on the common pool: KargerMinCut.defaultTrials(n) trials, no early termination
+   * before a cut of 0.
+   */
+  public static int minCut(KargerMinCut g) {
+    return minCut(g, KargerMinCut.defaultTrials(g.numVertices()), 0, ForkJoinPool.commonPool(),
+                  new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Monte Carlo min cut of g on the given pool: the fewest crossing edges found by the given number of
+   * trials, or the first cut not greater than lowerBound, a bound below which no cut of g is known to be.
+   * Runs with the same seed on pools of the same parallelism draw the same trials.
+   */
+  public static int minCut(KargerMinCut g, long trials, int lowerBound, ForkJoinPool pool, long seed) {
+    if (g == null || pool == null) {
+      throw new NullPointerException("g or pool is null");
+    }
+    if (trials < 1) {
+      throw new IllegalArgumentException(String.format("number of trials %d must be positive", trials));
+    }
+    AtomicInteger best = new AtomicInteger(g.minDegree());
+    if (best.get() <= lowerBound) {
+      return best.get();
+    }
+    final int tasks = (int) Math.min(pool.getParallelism(), trials);
+    SplittableRandom root = new SplittableRandom(seed);
+    List<TrialsTask> trialsTasks = new ArrayList<>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      trialsTasks.add(new TrialsTask(g, trials / tasks + (i < trials % tasks ? 1 : 0), lowerBound, best,
+                                     root.split()));
+    }
+    pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        ForkJoinTask.invokeAll(trialsTasks);
+      }
+    });
+    return best.get();
+  }
+
+
+  /* One worker's share of the trials, with its own random generator and scratch arrays */
+  private static class TrialsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final KargerMinCut g;
+    private final long trials;
+    private final int lowerBound;
+    private final AtomicInteger best;
+    private final SplittableRandom rd;
+
+    private TrialsTask(KargerMinCut g, long trials, int lowerBound, AtomicInteger best, SplittableRandom rd) {
+      this.g = g;
+      this.trials = trials;
+      this.lowerBound = lowerBound;
+      this.best = best;
+      this.rd = rd;
+    }
+
+    @Override
+    protected void compute() {
+      KargerMinCut.Contraction contraction = g.newContraction();
+      for (long i = 0; i < trials; i++) {
+        int current = best.get();
+        if (current <= lowerBound) {
+          return;
+        }
+        int cut = contraction.run(rd);
+        // only a better cut is published, so the shared value is rarely written
+        if (cut < current) {
+          best.accumulateAndGet(cut, Math::min);
+        }
+      }
+    }
+  }
+
+}
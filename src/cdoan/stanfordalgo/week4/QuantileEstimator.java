@@ -0,0 +1,42 @@
+package cdoan.stanfordalgo.week4;
+
+
+/**
+ * Quantiles of a stream of double values, e.g. latencies.
+ * The q-quantile is the ceil(q*n)-th smallest of the n values added so far (the smallest one for q = 0).
+ * Implementations are not thread-safe: give every thread its own estimator and merge them afterwards.
+ */
+public interface QuantileEstimator {
+
+  /**
+   * Add value x to the stream; x must not be NaN.
+   */
+  public void add(double x);
+
+  /**
+   * Get the number of values added so far, including those of merged estimators.
+   */
+  public long count();
+
+  /**
+   * Get the q-quantile, 0 <= q <= 1, of the values added so far.
+   */
+  public double quantile(double q);
+
+  /**
+   * Get the qs[i]-quantile for every i.
+   */
+  public default double[] quantiles(double... qs) {
+    double[] res = new double[qs.length];
+    for (int i = 0; i < qs.length; i++) {
+      res[i] = quantile(qs[i]);
+    }
+    return res;
+  }
+
+  /**
+   * Add all values of other, which must be of the same class, to this estimator; other is left unchanged.
+   */
+  public void merge(QuantileEstimator other);
+
+}
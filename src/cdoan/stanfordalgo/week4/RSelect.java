@@ -2,12 +2,16 @@ package cdoan.stanfordalgo.week4;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 /**
  * Implement Randomized Select, also called Quick Select, algo, which computes k-th smallest element in given array.
  */
 public class RSelect {
+  
+  /* Subarrays with at most this many elements get a random pivot in FloydRivestPartition */
+  private static final int FLOYD_RIVEST_CUTOFF = 600;
 
   /**
    * Run tests.
@@ -25,6 +29,68 @@ public class RSelect {
                                                k, kthSmallest, sorted[k - 1]));
       }
     }
+    
+    // p50, p90, p99, p99.9 and the extremes in a single call
+    int[] ks = {(int) Math.ceil(n * 0.5), (int) Math.ceil(n * 0.9), (int) Math.ceil(n * 0.99), 
+                (int) Math.ceil(n * 0.999), 1, n, (int) Math.ceil(n * 0.5)};
+    Integer[] quantiles = kthSmallest(input, ks);
+    
+    // Floyd-Rivest on every rank, then its comparison counts on a large array
+    for (int k = 1; k <= n; k++) {
+      Integer kthSmallest = kthSmallest(input, k, new FloydRivestPartition());
+      if (!kthSmallest.equals(sorted[k - 1])) {
+        throw new AssertionError(String.format("FloydRivest computed %d-th smallest = %s; expected = %s", 
+                                               k, kthSmallest, sorted[k - 1]));
+      }
+    }
+    // A strategy written against the public API only, as a caller outside RSelect would
+    PartitionStrategy lomuto = new PartitionStrategy() {
+      public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi) {
+        int index = lo;
+        for (int i = lo + 1; i <= hi; i++) {
+          if (a[i].compareTo(a[lo]) < 0) {
+            T t = a[++index];
+            a[index] = a[i];
+            a[i] = t;
+          }
+        }
+        T t = a[lo];
+        a[lo] = a[index];
+        a[index] = t;
+        return new Pair(index, index);
+      }
+    };
+    Pair pair = lomuto.partition(input.clone(), 0, n - 1);
+    if (pair.getStart() != pair.getEnd()) {
+      throw new AssertionError("Lomuto partition returned " + pair);
+    }
+    for (int k = 1; k <= n; k += 1 + n / 50) {
+      Integer kthSmallest = kthSmallest(input, k, lomuto);
+      if (!kthSmallest.equals(sorted[k - 1])) {
+        throw new AssertionError(String.format("custom strategy computed %d-th smallest = %s; expected = %s",
+                                               k, kthSmallest, sorted[k - 1]));
+      }
+    }
+    Random rd = new Random();
+    final int bigN = 1_000_000;
+    Integer[] big = new Integer[bigN];
+    for (int i = 0; i < bigN; i++) {
+      big[i] = rd.nextInt();
+    }
+    FloydRivestPartition floydRivest = new FloydRivestPartition();
+    for (int k : new int[] {bigN / 2, bigN / 10, bigN / 100}) {
+      floydRivest.resetCounters();
+      kthSmallest(big.clone(), k, floydRivest);
+      System.out.println(String.format("n = %d, k = %d: %d comparisons (n + min(k, n-k) = %d), %d swaps", 
+                                       bigN, k, floydRivest.getComparisons(), 
+                                       bigN + Math.min(k, bigN - k), floydRivest.getSwaps()));
+    }
+    for (int i = 0; i < ks.length; i++) {
+      if (!quantiles[i].equals(sorted[ks[i] - 1])) {
+        throw new AssertionError(String.format("computed %d-th smallest = %s; expected = %s", 
+                                               ks[i], quantiles[i], sorted[ks[i] - 1]));
+      }
+    }
   }
   
   /* Utility method for test data */
@@ -56,11 +122,85 @@ public class RSelect {
     PartitionStrategy strategy = new ThreewayPartition();
     return kthSmallest(a, 0, n, k, strategy);
   }
+  
+  /**
+   * Compute k-th smallest element in given array using the given partition strategy.
+   */
+  public static <T extends Comparable<T>> T kthSmallest(T[] a, int k, PartitionStrategy strategy) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    final int n = a.length;
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+    }
+    if (strategy == null) {
+      throw new IllegalArgumentException("null strategy");
+    }
+    return kthSmallest(a, 0, n, k, strategy);
+  }
 
+  /**
+   * Compute the ks[i]-th smallest element for every i in one pass: the array is partitioned once
+   * and only the subarrays that still contain requested ranks are recurred on.
+   * The i-th element of the returned array is the ks[i]-th smallest of a.
+   */
+  public static <T extends Comparable<T>> T[] kthSmallest(T[] a, int[] ks) {
+    if (a == null || a.length == 0) {
+      throw new IllegalArgumentException("null or empty array a");
+    }
+    if (ks == null) {
+      throw new IllegalArgumentException("null array ks");
+    }
+    final int n = a.length;
+    for (int k : ks) {
+      if (k < 1 || k > n) {
+        throw new IllegalArgumentException(String.format("k %d out of range 1..%d", k, n));
+      }
+    }
+    
+    int[] sortedKs = ks.clone();
+    Arrays.sort(sortedKs);
+    multiSelect(a, 0, n - 1, sortedKs, 0, sortedKs.length - 1, new ThreewayPartition(), new Random());
+    // a[k-1] now holds the k-th smallest element for every requested k
+    T[] res = Arrays.copyOf(a, ks.length);
+    for (int i = 0; i < ks.length; i++) {
+      res[i] = a[ks[i] - 1];
+    }
+    return res;
+  }
+  
+  /*
+   * Recursive method to place the ks[kLo..kHi]-th smallest elements of a at indices ks[kLo..kHi]-1,
+   * where ks is sorted and all of those indices lie in a[lo..hi].
+   */
+  private static <T extends Comparable<T>> void multiSelect(T[] a, int lo, int hi, int[] ks, int kLo, int kHi, 
+                                                            PartitionStrategy strategy, Random rd) {
+    // Base case: no requested rank in this subarray, or a single element which is in place
+    if (kLo > kHi || lo >= hi) {
+      return;
+    }
+    
+    int pivot = lo + rd.nextInt(hi - lo + 1);
+    swap(a, lo, pivot);
+    Pair pair = strategy.partition(a, lo, hi);
+    // ks[kLo..left-1] lie left of the pivot's range, ks[right+1..kHi] right of it, the others within it
+    int left = kLo;
+    while (left <= kHi && ks[left] - 1 < pair.start) {
+      left++;
+    }
+    int right = kHi;
+    while (right >= left && ks[right] - 1 > pair.end) {
+      right--;
+    }
+    multiSelect(a, lo, pair.start - 1, ks, kLo, left - 1, strategy, rd);
+    multiSelect(a, pair.end + 1, hi, ks, right + 1, kHi, strategy, rd);
+  }
+  
   /*
    * Recursive method to compute the k-th smallest element in subarray a[lo..lo+len-1].
    * 
-   * 1 ) Pick as pivot an element at random in given subarray.
+   * 1 ) Pick as pivot an element in given subarray, at random unless the strategy knows better.
    * 2 ) Partition input array around pivot.
    * 3a) If pivot is k-th smallest then return it.
    * 3b) Otherwise, recur either on Left or Right half of pivot depending whether it > or < k-th smallest.
@@ -72,7 +212,7 @@ public class RSelect {
       return a[lo];
     }
     
-    int pivot = lo + (new Random()).nextInt(len);
+    int pivot = strategy.choosePivot(a, lo, lo + len - 1, lo + k - 1);
     swap(a, lo, pivot);
     Pair pair = strategy.partition(a, lo, lo + len - 1);
     int orderStatisticLo = pair.start - lo + 1;
@@ -87,13 +227,22 @@ public class RSelect {
     return kthSmallest(a, pair.end + 1, len - orderStatisticHi, k - orderStatisticHi, strategy);
   }
   
-  /* Helper interface PartitionStrategy */
-  private static interface PartitionStrategy {
+  /**
+   * Partitions a[lo..hi] around the pivot a[lo], returning the index range the pivot's key ends up in.
+   */
+  public static interface PartitionStrategy {
     public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi);
+    
+    /**
+     * Index of the pivot for selecting the element of rank kIndex (an index in lo..hi) from a[lo..hi].
+     */
+    public default <T extends Comparable<T>> int choosePivot(T[] a, int lo, int hi, int kIndex) {
+      return lo + ThreadLocalRandom.current().nextInt(hi - lo + 1);
+    }
   }
   
   /* Helper class TwowayPartition that implements 2-way variant partition */
-  private static class TwowayVariantPartition implements PartitionStrategy {
+  public static class TwowayVariantPartition implements PartitionStrategy {
     public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi) {
       /* Maintain invariants:
        * a[j+1..hi] >= pivot >= a[lo..i-1]
@@ -119,7 +268,7 @@ public class RSelect {
   }
   
   /* Helper class TwowayPartition that implements 2-way partition */
-  private static class TwowayPartition implements PartitionStrategy {
+  public static class TwowayPartition implements PartitionStrategy {
     public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi) {
       /* Maintain invariant a[lo..index-1] < pivot = a[index] <= a[index+1..hi] */
       int index = lo;
@@ -134,7 +283,7 @@ public class RSelect {
   }
   
   /* Helper class ThreewayPartition that implements 3-way partition */
-  private static class ThreewayPartition implements PartitionStrategy {
+  public static class ThreewayPartition implements PartitionStrategy {
     public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi) {
       /* Maintain invariant a[lo..lt-1] < pivot = a[lt..gt] < a[gt+1..hi] */
       int lt = lo;
@@ -153,15 +302,111 @@ public class RSelect {
     }
   }
   
-  /* Helper class to store a pair of indices */
-  private static class Pair {
-    private int start;
-    private int end;
+  /**
+   * Floyd-Rivest selection. On subarrays larger than FLOYD_RIVEST_CUTOFF the pivot is the element
+   * of the wanted rank within a small sample around position kIndex, selected recursively, so it
+   * lands very close to the k-th smallest and the remaining subarray is tiny.
+   * Partitioning is the 2-way variant, and comparisons and swaps it does are counted
+   * (expected about n + min(k, n-k) comparisons overall).
+   */
+  public static class FloydRivestPartition implements PartitionStrategy {
+    private long comparisons;
+    private long swaps;
+    
+    public <T extends Comparable<T>> int choosePivot(T[] a, int lo, int hi, int kIndex) {
+      final int n = hi - lo + 1;
+      if (n <= FLOYD_RIVEST_CUTOFF) {
+        return lo + ThreadLocalRandom.current().nextInt(n);
+      }
+      // Sample of size s around kIndex, skewed towards the middle by about sd
+      final int i = kIndex - lo + 1;
+      double z = Math.log(n);
+      double s = 0.5 * Math.exp(2 * z / 3);
+      double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.0);
+      int sampleLo = Math.max(lo, (int) Math.floor(kIndex - i * s / n + sd));
+      int sampleHi = Math.min(hi, (int) Math.floor(kIndex + (n - i) * s / n + sd));
+      // Place the sample's element of the wanted rank at kIndex
+      kthSmallest(a, sampleLo, sampleHi - sampleLo + 1, kIndex - sampleLo + 1, this);
+      return kIndex;
+    }
+    
+    public <T extends Comparable<T>> Pair partition(T[] a, int lo, int hi) {
+      /* Same invariants as TwowayVariantPartition */
+      int i = lo + 1;
+      int j = hi;
+      while (i <= j) {
+        while (countedLess(a[lo], a[j])) {
+          j--;
+        }
+        while (i <= j && countedLess(a[i], a[lo])) {
+          i++;
+        }
+        if (i <= j) {
+          countedSwap(a, i++, j--);
+        }
+      }
+      countedSwap(a, lo, j);
+      return new Pair(j, j);
+    }
+    
+    /**
+     * Number of comparisons done by partition since creation or the last reset.
+     */
+    public long getComparisons() {
+      return comparisons;
+    }
+    
+    /**
+     * Number of swaps done by partition since creation or the last reset.
+     */
+    public long getSwaps() {
+      return swaps;
+    }
+    
+    public void resetCounters() {
+      comparisons = 0;
+      swaps = 0;
+    }
+    
+    private <T extends Comparable<T>> boolean countedLess(T v, T w) {
+      comparisons++;
+      return less(v, w);
+    }
+    
+    private <T extends Comparable<T>> void countedSwap(T[] a, int i, int j) {
+      swaps++;
+      swap(a, i, j);
+    }
+  }
+  
+  /**
+   * Pair of indices returned by PartitionStrategy.partition: a[start..end] hold the pivot's key,
+   * with elements not greater than it before start and elements not less than it after end; only the 3-way
+   * partition also keeps elements equal to it out of those two sides.
+   */
+  public static class Pair {
+    private final int start;
+    private final int end;
     
-    private Pair(int start, int end) {
+    public Pair(int start, int end) {
+      if (start > end) {
+        throw new IllegalArgumentException(String.format("start %d is greater than end %d", start, end));
+      }
       this.start = start;
       this.end = end;
     }
+    
+    public int getStart() {
+      return start;
+    }
+    
+    public int getEnd() {
+      return end;
+    }
+    
+    public String toString() {
+      return String.format("[%d..%d]", start, end);
+    }
   }
 
   /* Helper method to check if v < w */